@@ -1,6 +1,7 @@
 plugins {
     id("java-library")
     id("maven-publish")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.arco2121.jasync"
@@ -26,6 +27,10 @@ dependencies {
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
+jmh {
+    resultFormat.set("TEXT")
+}
+
 tasks {
     test {
         useJUnitPlatform()
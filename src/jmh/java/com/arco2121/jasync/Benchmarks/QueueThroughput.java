@@ -0,0 +1,70 @@
+package com.arco2121.jasync.Benchmarks;
+
+import com.arco2121.jasync.Types.Queues.MpmcRingQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Items per second through the storage of a bounded AsyncQueue: producers put a batch while one consumer takes it.
+ * LINKED is the LinkedBlockingQueue used by default, RING the MpmcRingQueue behind Hint.RING
+ * Run with ./gradlew jmh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueueThroughput {
+
+    private static final int BATCH = 1 << 16;
+    private static final int CAPACITY = 1024;
+    private static final Integer ITEM = 42;
+
+    @Param({ "LINKED", "RING" })
+    public String storage;
+
+    @Param({ "1", "4", "16" })
+    public int producers;
+
+    private BlockingQueue<Integer> queue;
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        queue = switch (storage) {
+            case "LINKED" -> new LinkedBlockingQueue<>(CAPACITY);
+            case "RING" -> new MpmcRingQueue<>(CAPACITY);
+            default -> throw new IllegalArgumentException("Unknown storage: " + storage);
+        };
+        pool = Executors.newFixedThreadPool(producers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int transfer() throws Exception {
+        int share = BATCH / producers;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            pool.execute(() -> {
+                try {
+                    for (int i = 0; i < share; i++) queue.put(ITEM);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        int sum = 0;
+        for (int i = share * producers; i > 0; i--) sum += queue.take();
+        done.await();
+        return sum;
+    }
+}
@@ -5,7 +5,10 @@ import com.arco2121.jasync.Types.Async.VirtualAsync;
 import com.arco2121.jasync.Types.Exceptions.ThrowRunnable;
 import com.arco2121.jasync.Types.Exceptions.ThrowCallable;
 import com.arco2121.jasync.Types.Interfaces.AsyncInterface;
+import com.arco2121.jasync.JAsync.Running.AsyncContext;
 import com.arco2121.jasync.JAsync.Running.AsyncInterval;
+import com.arco2121.jasync.JAsync.Running.AsyncLimiter;
+import com.arco2121.jasync.JAsync.Running.AsyncWatchdog;
 import com.arco2121.jasync.JAsync.Running.Asyncable;
 
 import java.util.*;
@@ -37,7 +40,7 @@ public final class Async {
         return new CompletableAsync();
     }
     private final static ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(1);
-    private final static Map<Integer, AsyncInterval> INTERVALS = new HashMap<>();
+    private final static Map<Integer, AsyncInterval> INTERVALS = new ConcurrentHashMap<>();
 
     //Public methods
     /***
@@ -55,10 +58,12 @@ public final class Async {
      * @param <T>
      */
     public static <T> Asyncable<T> async(Callable<T> task) {
-        return SELECTOR.async(task);
+        AsyncWatchdog watchdog = AsyncWatchdog.current();
+        if (watchdog != null) return watchdog.track(AsyncContext.wrap(task), SELECTOR::async);
+        return SELECTOR.async(AsyncContext.wrap(task));
     }
     public static Asyncable<Void> async(Runnable task) {
-        return SELECTOR.async(Executors.callable(task, null));
+        return async(Executors.callable(task, null));
     }
 
     /**
@@ -68,10 +73,24 @@ public final class Async {
      * @param <T>
      */
     public static <T> T await(Callable<T> task) {
-        return SELECTOR.await((Asyncable<T>) task);
+        AsyncWatchdog watchdog = AsyncWatchdog.current();
+        if (watchdog == null) return SELECTOR.await((Asyncable<T>) task);
+        AsyncWatchdog.Entry entry = watchdog.awaitStarted(task);
+        try {
+            return SELECTOR.await((Asyncable<T>) task);
+        } finally {
+            watchdog.awaitEnded(entry);
+        }
     }
     public static <T> T await(Callable<T> task, long maxTimeout) {
-        return SELECTOR.await((Asyncable<T>)task, maxTimeout);
+        AsyncWatchdog watchdog = AsyncWatchdog.current();
+        if (watchdog == null) return SELECTOR.await((Asyncable<T>) task, maxTimeout);
+        AsyncWatchdog.Entry entry = watchdog.awaitStarted(task);
+        try {
+            return SELECTOR.await((Asyncable<T>) task, maxTimeout);
+        } finally {
+            watchdog.awaitEnded(entry);
+        }
     }
 
     /**
@@ -159,7 +178,56 @@ public final class Async {
      * @param timeout
      */
     public static void delayed(Runnable task, long timeout) {
-        SCHEDULER.schedule(task, timeout, TimeUnit.MILLISECONDS);
+        schedule(task, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Like delayed, with the unit and a handle on the execution
+     * @param task
+     * @param timeout
+     * @param unit
+     * @return ScheduledFuture, can be used to cancel the execution
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long timeout, TimeUnit unit) {
+        return SCHEDULER.schedule(AsyncContext.wrap(task), timeout, unit);
+    }
+
+    /**
+     * Delay the execution until no event arrived for the given time, only the latest value is delivered
+     * @param task
+     * @param wait
+     * @return AsyncLimiterT
+     * @param <T>
+     */
+    public static <T> AsyncLimiter<T> debounce(Consumer<T> task, long wait) {
+        return new AsyncLimiter<>(task, AsyncLimiter.Mode.DEBOUNCE, wait);
+    }
+    public static AsyncLimiter<Void> debounce(Runnable task, long wait) {
+        return debounce(ignored -> task.run(), wait);
+    }
+
+    /**
+     * Execute at most once per period, the first event runs immediately and the latest of the period runs at its end
+     * @param task
+     * @param period
+     * @return AsyncLimiterT
+     * @param <T>
+     */
+    public static <T> AsyncLimiter<T> throttle(Consumer<T> task, long period) {
+        return new AsyncLimiter<>(task, AsyncLimiter.Mode.THROTTLE, period);
+    }
+    public static AsyncLimiter<Void> throttle(Runnable task, long period) {
+        return throttle(ignored -> task.run(), period);
+    }
+
+    /**
+     * Execute one at a time, the events arrived while running collapse into the latest one
+     * @param task
+     * @return AsyncLimiterT
+     * @param <T>
+     */
+    public static <T> AsyncLimiter<T> coalesce(Consumer<T> task) {
+        return new AsyncLimiter<>(task, AsyncLimiter.Mode.COALESCE, 0);
     }
 
     /**
@@ -211,16 +279,18 @@ public final class Async {
      * @param interval
      * @return AsyncIntervalT
      */
-    public static synchronized AsyncInterval interval(Runnable task, int interval) {
-        AsyncInterval serving = new AsyncInterval(task, interval);
-        return interval(serving);
+    public static AsyncInterval interval(Runnable task, int interval) {
+        return interval(new AsyncInterval(task, interval));
     }
-    public static synchronized AsyncInterval interval(AsyncInterval interval) {
-        interval.start();
+    public static AsyncInterval interval(Runnable task, int interval, AsyncInterval.Mode mode) {
+        return interval(new AsyncInterval(task, interval, mode));
+    }
+    public static AsyncInterval interval(AsyncInterval interval) {
         INTERVALS.put(interval.getIntervalId(), interval);
+        interval.start();
         return interval;
     }
-    public static synchronized AsyncInterval interval(Consumer<AsyncInterval> task, int interval) {
+    public static AsyncInterval interval(Consumer<AsyncInterval> task, int interval) {
         AtomicReference<AsyncInterval> intervalRef = new AtomicReference<>();
         Runnable capsule = () -> {
             AsyncInterval instance = intervalRef.get();
@@ -228,7 +298,9 @@ public final class Async {
                 task.accept(instance);
             }
         };
-        return interval(capsule, interval);
+        AsyncInterval serving = new AsyncInterval(capsule, interval);
+        intervalRef.set(serving);
+        return interval(serving);
     }
 
     /**
@@ -236,14 +308,8 @@ public final class Async {
      * @param interval
      * @return boolean
      */
-    public static synchronized boolean clearInterval(AsyncInterval interval) {
-        try {
-            interval.stop();
-            INTERVALS.remove(interval.getIntervalId());
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    public static boolean clearInterval(AsyncInterval interval) {
+        return clearInterval(interval, false);
     }
     public static boolean clearInterval(AsyncInterval interval, boolean instantaneous) {
         try {
@@ -255,42 +321,23 @@ public final class Async {
             return false;
         }
     }
-    public static synchronized boolean clearInterval(int intervalId) {
-        try {
-            AsyncInterval serving = INTERVALS.get(intervalId);
-            serving.stop();
-            INTERVALS.remove(intervalId);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    public static boolean clearInterval(int intervalId) {
+        AsyncInterval serving = INTERVALS.get(intervalId);
+        return serving != null && clearInterval(serving, false);
     }
 
     /**
      * Clear all existing intervals
      * @return boolean
      */
-    public static synchronized boolean clearAllIntervals() {
-        try {
-            for(AsyncInterval interval : INTERVALS.values())
-                interval.stop();
-            INTERVALS.clear();
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    public static boolean clearAllIntervals() {
+        return clearAllIntervals(false);
     }
     public static boolean clearAllIntervals(boolean instantaneous) {
-        try {
-            for(AsyncInterval interval : INTERVALS.values()) {
-                if(instantaneous) interval.interrupt();
-                else interval.stop();
-            }
-            INTERVALS.clear();
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        boolean cleared = true;
+        for(AsyncInterval interval : INTERVALS.values())
+            cleared &= clearInterval(interval, instantaneous);
+        return cleared;
     }
 
     /**
@@ -300,4 +347,14 @@ public final class Async {
     public static Collection<AsyncInterval> knownIntervals() {
         return INTERVALS.values();
     }
+
+    /**
+     * View the execution statistics of the active intervals
+     * @return List of AsyncInterval.Stats
+     */
+    public static List<AsyncInterval.Stats> intervalStats() {
+        List<AsyncInterval.Stats> stats = new ArrayList<>();
+        for (AsyncInterval interval : INTERVALS.values()) stats.add(interval.stats());
+        return stats;
+    }
 }
\ No newline at end of file
@@ -1,30 +1,48 @@
 package com.arco2121.jasync.JAsync.Collections;
 
 import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
-import com.arco2121.jasync.JAsync.Async;
 import com.arco2121.jasync.JAsync.Running.Asyncable;
 import com.arco2121.jasync.Types.Interfaces.ObjectNotations.JSONable;
+import com.arco2121.jasync.Types.Storage.AppendArray;
 
 import java.io.Serial;
+import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
-import static com.arco2121.jasync.JAsync.Async.timeout;
-
 public class AsyncArray extends AbstractList<Object> implements RandomAccess, JSONable, Cloneable, AsyncCollection {
 
     @Serial
     private static final long serialVersionUID = 1L;
 
-    private final ArrayList<Object> storage = new ArrayList<>();
+    private final AppendArray<Object> storage = new AppendArray<>();
     private volatile boolean completed = false;
     private final List<Runnable> completionListeners = Collections.synchronizedList(new ArrayList<>());
+    private final transient IndexWaiters<Object> waiters = new IndexWaiters<>(this::size, this::get, () -> completed);
 
     @Override
     public boolean add(Object item) {
         if (!completed) {
-            return storage.add(item);
+            boolean added = storage.add(item);
+            if (!waiters.isEmpty()) waiters.published();
+            return added;
+        }
+        return false;
+    }
+
+    /**
+     * Append the items contiguously, with one index reservation for the whole batch
+     * @param items
+     * @return boolean
+     */
+    @Override
+    public boolean addAll(Collection<?> items) {
+        if (!completed) {
+            boolean added = storage.addAll(items);
+            if (added && !waiters.isEmpty()) waiters.published();
+            return added;
         }
         return false;
     }
@@ -32,6 +50,7 @@ public class AsyncArray extends AbstractList<Object> implements RandomAccess, JS
     public synchronized void complete() {
         if (completed) return;
         completed = true;
+        waiters.completed();
         synchronized (completionListeners) {
             completionListeners.forEach(Runnable::run);
             completionListeners.clear();
@@ -39,8 +58,13 @@ public class AsyncArray extends AbstractList<Object> implements RandomAccess, JS
     }
 
     public void onComplete(Runnable callback) {
-        if (completed) callback.run();
-        else completionListeners.add(callback);
+        synchronized (this) {
+            if (!completed) {
+                completionListeners.add(callback);
+                return;
+            }
+        }
+        callback.run();
     }
 
     @Override
@@ -65,22 +89,19 @@ public class AsyncArray extends AbstractList<Object> implements RandomAccess, JS
 
     @Override
     public Stream<Object> stream() {
-        return storage.stream();
+        return storage.snapshot().stream();
     }
 
     @Override
     public Asyncable<List<?>> awaitToList() {
-        return Async.async(() -> {
-            while (!completed) {
-                timeout(10);
-            }
-            return new ArrayList<>(storage);
-        });
+        CompletableFuture<List<?>> list = new CompletableFuture<>();
+        onComplete(() -> list.complete(storage.snapshot()));
+        return new Asyncable<>(list);
     }
 
     @Override
     public Iterator<?> asyncIterator() {
-        return storage.iterator();
+        return storage.snapshot().iterator();
     }
 
     @Override
@@ -88,34 +109,43 @@ public class AsyncArray extends AbstractList<Object> implements RandomAccess, JS
         return this.awaitToList().then(list -> list.toArray((Object[]) generator.apply(list.size())));
     }
 
+    /**
+     * Copy the items written so far into an array of the given type
+     * @param type
+     * @return E array
+     * @throws ArrayStoreException if an item is not a type
+     * @throws IllegalArgumentException if type is primitive
+     */
+    @SuppressWarnings("unchecked")
+    public <E> E[] toArray(Class<E> type) {
+        if (type.isPrimitive()) throw new IllegalArgumentException("Primitive array type: " + type.getName());
+        return storage.toArray((E[]) Array.newInstance(type, 0));
+    }
+
+    /**
+     * @param index
+     * @return Asyncable completed when the index is written, failed with IndexOutOfBoundsException if the list completes shorter
+     */
     public Asyncable<Object> awaitGet(int index) {
-        return Async.async(() -> {
-            while (storage.size() <= index && !completed) {
-                timeout(10);
-            }
-            return storage.get(index);
-        });
+        return new Asyncable<>(waiters.await(index));
     }
 
     public Asyncable<Integer> awaitSize() {
-        return Async.async(() -> {
-            while (!completed) {
-                timeout(10);
-            }
-            return storage.size();
-        });
+        CompletableFuture<Integer> size = new CompletableFuture<>();
+        onComplete(() -> size.complete(storage.size()));
+        return new Asyncable<>(size);
     }
 
     @Override
     public Object clone() {
         AsyncArray copy = new AsyncArray();
-        for (Object item : this.storage) copy.add(item);
+        copy.addAll(this.storage.snapshot());
         if (this.completed) copy.complete();
         return copy;
     }
 
     @Serial
     private Object writeReplace() {
-        return new ArrayList<>(this.storage);
+        return new ArrayList<>(this.storage.snapshot());
     }
 }
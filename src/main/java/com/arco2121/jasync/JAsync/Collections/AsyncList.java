@@ -1,30 +1,59 @@
 package com.arco2121.jasync.JAsync.Collections;
 
-import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
 import com.arco2121.jasync.JAsync.Async;
+import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
 import com.arco2121.jasync.JAsync.Running.Asyncable;
 import com.arco2121.jasync.Types.Interfaces.ObjectNotations.JSONable;
+import com.arco2121.jasync.Types.Storage.AppendArray;
 
 import java.io.Serial;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
-
-import static com.arco2121.jasync.JAsync.Async.timeout;
+import java.util.stream.StreamSupport;
 
 public final class AsyncList<T> extends AbstractList<T> implements RandomAccess, JSONable, Cloneable, AsyncCollection {
 
     @Serial
     private static final long serialVersionUID = 1L;
-    private final List<T> storage = new CopyOnWriteArrayList<>();
+    private static final int MAX_CLAIM = 1024;
+    private final AppendArray<T> storage = new AppendArray<>();
     private volatile boolean completed = false;
     private final List<Runnable> completionListeners = Collections.synchronizedList(new ArrayList<>());
+    private final transient IndexWaiters<T> waiters = new IndexWaiters<>(this::size, this::get, () -> completed);
+    private final transient List<AppendFeed> feeds = new CopyOnWriteArrayList<>();
 
     @Override
     public boolean add(T item) {
         if (!completed) {
-            return storage.add(item);
+            boolean added = storage.add(item);
+            if (!waiters.isEmpty()) waiters.published();
+            if (!feeds.isEmpty()) feeds.forEach(AppendFeed::signal);
+            return added;
+        }
+        return false;
+    }
+
+    /**
+     * Append the items contiguously, with one index reservation for the whole batch
+     * @param items
+     * @return boolean
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> items) {
+        if (!completed) {
+            boolean added = storage.addAll(items);
+            if (added && !waiters.isEmpty()) waiters.published();
+            if (added && !feeds.isEmpty()) feeds.forEach(AppendFeed::signal);
+            return added;
         }
         return false;
     }
@@ -32,6 +61,8 @@ public final class AsyncList<T> extends AbstractList<T> implements RandomAccess,
     public synchronized void complete() {
         if (completed) return;
         completed = true;
+        waiters.completed();
+        feeds.forEach(AppendFeed::signal);
         synchronized (completionListeners) {
             completionListeners.forEach(Runnable::run);
             completionListeners.clear();
@@ -39,8 +70,13 @@ public final class AsyncList<T> extends AbstractList<T> implements RandomAccess,
     }
 
     public void onComplete(Runnable callback) {
-        if (completed) callback.run();
-        else completionListeners.add(callback);
+        synchronized (this) {
+            if (!completed) {
+                completionListeners.add(callback);
+                return;
+            }
+        }
+        callback.run();
     }
 
     @Override
@@ -65,7 +101,7 @@ public final class AsyncList<T> extends AbstractList<T> implements RandomAccess,
 
     @Override
     public Stream<T> stream() {
-        return storage.stream();
+        return storage.snapshot().stream();
     }
 
     @Override
@@ -75,12 +111,9 @@ public final class AsyncList<T> extends AbstractList<T> implements RandomAccess,
 
     @Override
     public Asyncable<List<?>> awaitToList() {
-        return Async.async(() -> {
-            while (!completed) {
-                timeout(10);
-            }
-            return new ArrayList<>(storage);
-        });
+        CompletableFuture<List<?>> list = new CompletableFuture<>();
+        onComplete(() -> list.complete(storage.snapshot()));
+        return new Asyncable<>(list);
     }
 
     public AsyncArray deType() {
@@ -89,39 +122,291 @@ public final class AsyncList<T> extends AbstractList<T> implements RandomAccess,
         return k;
     }
 
+    /**
+     * @param index
+     * @return Asyncable completed when the index is written, failed with IndexOutOfBoundsException if the list completes shorter
+     */
     public Asyncable<T> awaitGet(int index) {
-        return Async.async(() -> {
-            while (storage.size() <= index && !completed) {
-                timeout(10);
+        return new Asyncable<>(waiters.await(index));
+    }
+
+    public Asyncable<Integer> awaitSize() {
+        CompletableFuture<Integer> size = new CompletableFuture<>();
+        onComplete(() -> size.complete(storage.size()));
+        return new Asyncable<>(size);
+    }
+
+    /**
+     * Publisher of the items in order, the items appended later are emitted as they arrive and the subscriber
+     * completes with the list. Every subscriber reads the whole list
+     * @return Flow.PublisherT
+     */
+    public Flow.Publisher<T> asPublisher() {
+        return subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            private final AtomicLong demand = new AtomicLong();
+            private final AtomicInteger work = new AtomicInteger();
+            private volatile boolean cancelled = false;
+            private volatile boolean waiting = false;
+            private boolean done = false;
+            private int index = 0;
+
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                    return;
+                }
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                emit();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+
+            //Serialized by work, the appended items are emitted in runs up to the demand
+            private void emit() {
+                if (work.getAndIncrement() != 0) return;
+                int missed = 1;
+                do {
+                    while (!cancelled && !done && !waiting && demand.get() > 0) {
+                        boolean over = completed;
+                        int size = storage.size();
+                        if (index < size) {
+                            long n = Math.min(demand.get(), size - index);
+                            for (long i = 0; i < n; i++) subscriber.onNext(storage.get(index++));
+                            demand.addAndGet(-n);
+                        } else if (over) {
+                            done = true;
+                            subscriber.onComplete();
+                        } else {
+                            waiting = true;
+                            awaitGet(index).getDelegate().whenComplete((item, error) -> {
+                                waiting = false;
+                                emit();
+                            });
+                        }
+                    }
+                    missed = work.addAndGet(-missed);
+                } while (missed != 0);
             }
-            return storage.get(index);
         });
     }
 
-    public Asyncable<Integer> awaitSize() {
-        return Async.async(() -> {
-            while (!completed) {
-                timeout(10);
+    /**
+     * Stream over the items as they are appended, it ends when the list completes. The consuming thread blocks
+     * while it waits for the next item; in a parallel stream the items published at split time are processed in
+     * parallel and the live tail sequentially, use parallelProcess to spread the whole list
+     * @return StreamT
+     */
+    public Stream<T> liveStream() {
+        return StreamSupport.stream(new LiveSpliterator(), false);
+    }
+
+    /**
+     * Run fn on every item while the list is still being filled: parallelism workers claim ranges of the published
+     * indexes and wait for new appends instead of blocking a thread. The items are not processed in order
+     * @param fn
+     * @param parallelism
+     * @return Asyncable completed when every item of the completed list is processed, failed with the first error of fn
+     */
+    public Asyncable<Void> parallelProcess(Consumer<? super T> fn, int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger(parallelism);
+        for (int i = 0; i < parallelism; i++) Async.async(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!done.isDone()) {
+                        boolean over = completed;
+                        int size = storage.size();
+                        int start = claimed.get();
+                        if (start < size) {
+                            //A share of what is published, so the workers split a burst instead of one taking it all
+                            int end = start + Math.max(1, Math.min(MAX_CLAIM, (size - start) / parallelism));
+                            if (!claimed.compareAndSet(start, end)) continue;
+                            for (int index = start; index < end; index++) fn.accept(storage.get(index));
+                        } else if (over) {
+                            if (running.decrementAndGet() == 0) done.complete(null);
+                            return;
+                        } else {
+                            awaitGet(start).getDelegate().whenComplete((item, error) -> Async.async(this));
+                            return;
+                        }
+                    }
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
             }
-            return storage.size();
         });
+        return new Asyncable<>(done);
+    }
+
+    private final class LiveSpliterator implements Spliterator<T> {
+
+        private int index = 0;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= storage.size() && !arrived()) return false;
+            action.accept(storage.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            do {
+                int size = storage.size();
+                while (index < size) action.accept(storage.get(index++));
+            } while (arrived());
+        }
+
+        //Splits off the items published so far, the live tail stays here
+        @Override
+        public Spliterator<T> trySplit() {
+            int size = storage.size();
+            if (index >= size) return null;
+            Spliterator<T> published = storage.snapshot().subList(index, size).spliterator();
+            index = size;
+            return published;
+        }
+
+        @Override
+        public long estimateSize() {
+            return completed ? storage.size() - index : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+
+        //Waits for the item at index, false if the list completed before it
+        private boolean arrived() {
+            try {
+                awaitGet(index).getDelegate().join();
+                return true;
+            } catch (CompletionException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Deliver the items appended from now on, in batches of what arrived since the previous one
+     * @param consumer
+     * @return Asyncable completed after the last batch once the list completes, cancel it to unsubscribe
+     */
+    public Asyncable<Void> onAppend(Consumer<? super List<T>> consumer) {
+        return subscribe(storage.size(), consumer);
+    }
+
+    /**
+     * @param consumer
+     * @param executor runs the consumer
+     * @return Asyncable completed after the last batch once the list completes, cancel it to unsubscribe
+     */
+    public Asyncable<Void> onAppend(Consumer<? super List<T>> consumer, Executor executor) {
+        return subscribe(storage.size(), consumer, executor);
+    }
+
+    /**
+     * Deliver the items from fromIndex on, the ones already written in a first batch and then the appended ones
+     * in batches of what arrived since the previous one. A batch is a read-only view, it is never copied
+     * @param fromIndex
+     * @param consumer
+     * @return Asyncable completed after the last batch once the list completes, cancel it to unsubscribe
+     */
+    public Asyncable<Void> subscribe(int fromIndex, Consumer<? super List<T>> consumer) {
+        return subscribe(fromIndex, consumer, Async::async);
+    }
+
+    /**
+     * @param fromIndex
+     * @param consumer
+     * @param executor runs the consumer, one batch at a time
+     * @return Asyncable completed after the last batch once the list completes, failed with the first error of the consumer
+     */
+    public Asyncable<Void> subscribe(int fromIndex, Consumer<? super List<T>> consumer, Executor executor) {
+        if (fromIndex < 0) throw new IndexOutOfBoundsException("Index " + fromIndex + " out of bounds");
+        AppendFeed feed = new AppendFeed(fromIndex, consumer, executor);
+        feeds.add(feed);
+        feed.done.whenComplete((ignored, error) -> feeds.remove(feed));
+        feed.signal();
+        return new Asyncable<>(feed.done);
+    }
+
+    /**
+     * Delivery of the appends to one consumer, the signals that arrive while a batch runs are merged in the next one
+     */
+    private final class AppendFeed {
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final AtomicInteger work = new AtomicInteger();
+        private final Consumer<? super List<T>> consumer;
+        private final Executor executor;
+        private int index;
+
+        AppendFeed(int index, Consumer<? super List<T>> consumer, Executor executor) {
+            this.index = index;
+            this.consumer = consumer;
+            this.executor = executor;
+        }
+
+        void signal() {
+            if (work.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::deliver);
+                } catch (RuntimeException e) {
+                    done.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void deliver() {
+            int missed = 1;
+            do {
+                if (done.isDone()) return;
+                try {
+                    boolean over = completed;
+                    int size = storage.size();
+                    if (index < size) {
+                        List<T> batch = storage.snapshot().subList(index, size);
+                        index = size;
+                        consumer.accept(batch);
+                    }
+                    if (over) {
+                        done.complete(null);
+                        return;
+                    }
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
     }
 
     @Override
     public Object clone() {
         AsyncList<T> copy = new AsyncList<>();
-        for (T item : this.storage) copy.add(item);
+        for (T item : this.storage.snapshot()) copy.add(item);
         if (this.completed) copy.complete();
         return copy;
     }
 
     @Serial
     private Object writeReplace() {
-        return new ArrayList<>(this.storage);
+        return new ArrayList<>(this.storage.snapshot());
     }
 
     @Override
     public Iterator<?> asyncIterator() {
-        return this.storage.iterator();
+        return this.storage.snapshot().iterator();
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.arco2121.jasync.JAsync.Collections;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Pending awaitGet calls of an append-only list, by index. They are completed by the append that writes their
+ * index, or failed when the list completes shorter
+ * @param <T>
+ */
+final class IndexWaiters<T> {
+
+    private final ConcurrentSkipListMap<Integer, Queue<CompletableFuture<T>>> waiters = new ConcurrentSkipListMap<>();
+    private final IntSupplier size;
+    private final IntFunction<T> get;
+    private final BooleanSupplier completed;
+
+    IndexWaiters(IntSupplier size, IntFunction<T> get, BooleanSupplier completed) {
+        this.size = size;
+        this.get = get;
+        this.completed = completed;
+    }
+
+    CompletableFuture<T> await(int index) {
+        if (index < 0) return CompletableFuture.failedFuture(outOfBounds(index));
+        if (index < size.getAsInt()) return CompletableFuture.completedFuture(get.apply(index));
+        if (completed.getAsBoolean()) return CompletableFuture.failedFuture(outOfBounds(index));
+        CompletableFuture<T> waiter = new CompletableFuture<>();
+        waiters.computeIfAbsent(index, i -> new ConcurrentLinkedQueue<>()).add(waiter);
+        //Checked again after registering: an append or complete in between may have missed this waiter
+        if (index < size.getAsInt()) waiter.complete(get.apply(index));
+        else if (completed.getAsBoolean()) waiter.completeExceptionally(outOfBounds(index));
+        return waiter;
+    }
+
+    boolean isEmpty() {
+        return waiters.isEmpty();
+    }
+
+    /**
+     * Complete the waiters of the indexes below the current size
+     */
+    void published() {
+        int written = size.getAsInt();
+        Map.Entry<Integer, Queue<CompletableFuture<T>>> entry;
+        while ((entry = waiters.firstEntry()) != null && entry.getKey() < written) {
+            if (!waiters.remove(entry.getKey(), entry.getValue())) continue;
+            T item = get.apply(entry.getKey());
+            for (CompletableFuture<T> waiter : entry.getValue()) waiter.complete(item);
+        }
+    }
+
+    /**
+     * The list is complete: fail the waiters beyond its size
+     */
+    void completed() {
+        published();
+        Map.Entry<Integer, Queue<CompletableFuture<T>>> entry;
+        while ((entry = waiters.pollFirstEntry()) != null) {
+            for (CompletableFuture<T> waiter : entry.getValue()) waiter.completeExceptionally(outOfBounds(entry.getKey()));
+        }
+    }
+
+    private IndexOutOfBoundsException outOfBounds(int index) {
+        return new IndexOutOfBoundsException("Index " + index + " out of bounds for completed length " + size.getAsInt());
+    }
+}
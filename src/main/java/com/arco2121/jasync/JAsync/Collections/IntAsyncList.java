@@ -0,0 +1,142 @@
+package com.arco2121.jasync.JAsync.Collections;
+
+import com.arco2121.jasync.JAsync.Running.Asyncable;
+import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Append-only AsyncList of int values kept unboxed in an array
+ */
+public final class IntAsyncList implements AsyncCollection {
+
+    private volatile int[] items = new int[16];
+    private volatile int size = 0;
+    private volatile boolean completed = false;
+    private final List<Runnable> completionListeners = Collections.synchronizedList(new ArrayList<>());
+
+    public synchronized boolean add(int value) {
+        if (completed) return false;
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        items[size] = value;
+        size = size + 1;
+        return true;
+    }
+
+    public synchronized boolean addAll(int... values) {
+        if (completed) return false;
+        if (size + values.length > items.length) items = Arrays.copyOf(items, Math.max(size + values.length, size * 2));
+        System.arraycopy(values, 0, items, size, values.length);
+        size = size + values.length;
+        return true;
+    }
+
+    public synchronized void complete() {
+        if (completed) return;
+        completed = true;
+        synchronized (completionListeners) {
+            completionListeners.forEach(Runnable::run);
+            completionListeners.clear();
+        }
+    }
+
+    public void onComplete(Runnable callback) {
+        synchronized (this) {
+            if (!completed) {
+                completionListeners.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int get(int index) {
+        int n = size;
+        if (index < 0 || index >= n) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + n);
+        return items[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] toArray() {
+        int n = size;
+        return Arrays.copyOf(items, n);
+    }
+
+    public IntStream stream() {
+        int n = size;
+        return Arrays.stream(items, 0, n);
+    }
+
+    public void forEach(IntConsumer action) {
+        int n = size;
+        int[] current = items;
+        for (int i = 0; i < n; i++) action.accept(current[i]);
+    }
+
+    /**
+     * @param mapper
+     * @return IntAsyncList filled and completed when this list completes
+     */
+    public IntAsyncList map(IntUnaryOperator mapper) {
+        IntAsyncList mapped = new IntAsyncList();
+        onComplete(() -> {
+            mapped.addAll(stream().map(mapper).toArray());
+            mapped.complete();
+        });
+        return mapped;
+    }
+
+    /**
+     * @param condition
+     * @return IntAsyncList filled and completed when this list completes
+     */
+    public IntAsyncList filter(IntPredicate condition) {
+        IntAsyncList filtered = new IntAsyncList();
+        onComplete(() -> {
+            filtered.addAll(stream().filter(condition).toArray());
+            filtered.complete();
+        });
+        return filtered;
+    }
+
+    /**
+     * @return Asyncableintarray completed with every value when the list completes
+     */
+    public Asyncable<int[]> awaitToArray() {
+        CompletableFuture<int[]> values = new CompletableFuture<>();
+        onComplete(() -> values.complete(toArray()));
+        return new Asyncable<>(values);
+    }
+
+    @Override
+    public Asyncable<?> awaitToArray(Function<Integer, ?> generator) {
+        return awaitToArray().then(values -> {
+            Integer[] boxed = (Integer[]) generator.apply(values.length);
+            for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+            return boxed;
+        });
+    }
+
+    @Override
+    public Asyncable<List<?>> awaitToList() {
+        return awaitToArray().then(values -> Arrays.stream(values).boxed().toList());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt asyncIterator() {
+        return stream().iterator();
+    }
+}
@@ -0,0 +1,328 @@
+package com.arco2121.jasync.JAsync.Collections;
+
+import com.arco2121.jasync.JAsync.Async;
+import com.arco2121.jasync.JAsync.IO.AsyncIO;
+import com.arco2121.jasync.JAsync.IO.LongAsyncQueue;
+import com.arco2121.jasync.JAsync.Running.Asyncable;
+import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.IntStream;
+
+/**
+ * Append-only array of long values stored outside the heap, in direct ByteBuffer chunks of CHUNK values in native
+ * byte order. It fills like a LongAsyncList, its bulk operations run one task per chunk, and the chunks are written
+ * to files and sockets as they are, without copies
+ */
+public final class LongOffHeapArray implements AsyncCollection {
+
+    private static final int CHUNK_SHIFT = 20;
+    public static final int CHUNK = 1 << CHUNK_SHIFT;
+    private static final int MASK = CHUNK - 1;
+    private static final int BYTES = Long.BYTES;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[4];
+    private volatile int size = 0;
+    private volatile boolean completed = false;
+    private final List<Runnable> completionListeners = Collections.synchronizedList(new ArrayList<>());
+
+    public LongOffHeapArray() {}
+
+    //Mapped file, already complete
+    private LongOffHeapArray(ByteBuffer[] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+        this.completed = true;
+    }
+
+    /**
+     * Map a file of long values in native byte order, read-only
+     * @param file
+     * @return LongOffHeapArray complete, backed by the file
+     * @throws IOException
+     */
+    public static LongOffHeapArray map(Path file) throws IOException {
+        return map(file, false);
+    }
+
+    /**
+     * Map a file of long values in native byte order, the trailing bytes that do not make a value are ignored
+     * @param file
+     * @param writable if mapInPlace writes back to the file
+     * @return LongOffHeapArray complete, backed by the file
+     * @throws IOException
+     */
+    public static LongOffHeapArray map(Path file, boolean writable) throws IOException {
+        try (FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            long values = channel.size() / BYTES;
+            if (values > Integer.MAX_VALUE) throw new IOException("File too large for an LongOffHeapArray: " + file);
+            int size = (int) values;
+            ByteBuffer[] chunks = new ByteBuffer[Math.max(1, chunkCount(size))];
+            for (int k = 0; (long) k * CHUNK < size; k++) {
+                long from = (long) k * CHUNK;
+                long n = Math.min(CHUNK, size - from);
+                chunks[k] = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, from * BYTES, n * BYTES)
+                        .order(ByteOrder.nativeOrder());
+            }
+            return new LongOffHeapArray(chunks, size);
+        }
+    }
+
+    /**
+     * Fill an array from a queue as it is drained, the array completes when the queue is closed
+     * @param queue
+     * @return LongOffHeapArray
+     */
+    public static LongOffHeapArray from(LongAsyncQueue queue) {
+        LongOffHeapArray array = new LongOffHeapArray();
+        queue.forEachChunk(array::addAll).getDelegate().whenComplete((ignored, error) -> array.complete());
+        return array;
+    }
+
+    public synchronized boolean add(long value) {
+        if (completed) return false;
+        if (size == Integer.MAX_VALUE) throw new IllegalStateException("LongOffHeapArray is full");
+        chunk(size).putLong((size & MASK) * BYTES, value);
+        size = size + 1;
+        return true;
+    }
+
+    public boolean addAll(long... values) {
+        return addAll(values, values.length);
+    }
+
+    /**
+     * @param values
+     * @param n how many values to append from the start of values
+     * @return boolean
+     */
+    public synchronized boolean addAll(long[] values, int n) {
+        if (completed) return false;
+        if (n > Integer.MAX_VALUE - size) throw new IllegalStateException("LongOffHeapArray is full");
+        int written = 0;
+        while (written < n) {
+            int at = size + written;
+            LongBuffer view = chunk(at).asLongBuffer();
+            int count = Math.min(n - written, CHUNK - (at & MASK));
+            view.put(at & MASK, values, written, count);
+            written += count;
+        }
+        size = size + n;
+        return true;
+    }
+
+    //Chunks holding n values, in long arithmetic since n can be close to Integer.MAX_VALUE
+    private static int chunkCount(int n) {
+        return (int) ((n + (long) CHUNK - 1) >>> CHUNK_SHIFT);
+    }
+
+    //Called holding the lock, the chunk of index is allocated on its first write
+    private ByteBuffer chunk(int index) {
+        int k = index >>> CHUNK_SHIFT;
+        ByteBuffer[] current = chunks;
+        if (k == current.length) current = chunks = Arrays.copyOf(current, current.length * 2);
+        if (current[k] == null) current[k] = ByteBuffer.allocateDirect(CHUNK * BYTES).order(ByteOrder.nativeOrder());
+        return current[k];
+    }
+
+    public synchronized void complete() {
+        if (completed) return;
+        completed = true;
+        synchronized (completionListeners) {
+            completionListeners.forEach(Runnable::run);
+            completionListeners.clear();
+        }
+    }
+
+    public void onComplete(Runnable callback) {
+        synchronized (this) {
+            if (!completed) {
+                completionListeners.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public long get(int index) {
+        int n = size;
+        if (index < 0 || index >= n) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + n);
+        return chunks[index >>> CHUNK_SHIFT].getLong((index & MASK) * BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] toArray() {
+        int n = size;
+        long[] values = new long[n];
+        ByteBuffer[] current = chunks;
+        for (int k = 0; (long) k * CHUNK < n; k++) {
+            int from = k * CHUNK;
+            current[k].asLongBuffer().get(0, values, from, Math.min(CHUNK, n - from));
+        }
+        return values;
+    }
+
+    public LongStream stream() {
+        int n = size;
+        ByteBuffer[] current = chunks;
+        return IntStream.range(0, chunkCount(n)).mapToObj(k -> {
+            LongBuffer view = current[k].asLongBuffer();
+            return IntStream.range(0, Math.min(CHUNK, n - k * CHUNK)).mapToLong(view::get);
+        }).flatMapToLong(values -> values);
+    }
+
+    /**
+     * Read-only views of the chunks over the values written so far, for zero-copy writes
+     * @return ByteBuffer array
+     */
+    public ByteBuffer[] buffers() {
+        int n = size;
+        ByteBuffer[] current = chunks;
+        ByteBuffer[] views = new ByteBuffer[chunkCount(n)];
+        for (int k = 0; k < views.length; k++) {
+            views[k] = current[k].asReadOnlyBuffer().limit(Math.min(CHUNK, n - k * CHUNK) * BYTES);
+        }
+        return views;
+    }
+
+    /**
+     * Write the values once the array completes, straight from the chunks
+     * @param destination
+     * @return Asyncable completed with the bytes written
+     */
+    public Asyncable<Long> writeTo(AsyncIO.Resource destination) {
+        CompletableFuture<Long> written = new CompletableFuture<>();
+        onComplete(() -> AsyncIO.Output.sendBuffers(destination, buffers()).getDelegate().whenComplete((bytes, error) -> {
+            if (error != null) written.completeExceptionally(error);
+            else written.complete(bytes);
+        }));
+        return new Asyncable<>(written);
+    }
+
+    /**
+     * @return Asyncable completed with the sum of the values when the array completes
+     */
+    public Asyncable<Long> sum() {
+        return reduce(view -> {
+            long sum = 0;
+            for (int i = 0; i < view.limit(); i++) sum += view.get(i);
+            return sum;
+        }, Long::sum);
+    }
+
+    /**
+     * @return Asyncable completed with the smallest value when the array completes, empty if it has none
+     */
+    public Asyncable<OptionalLong> min() {
+        return reduce(view -> {
+            if (view.limit() == 0) return OptionalLong.empty();
+            long min = view.get(0);
+            for (int i = 1; i < view.limit(); i++) min = Math.min(min, view.get(i));
+            return OptionalLong.of(min);
+        }, (a, b) -> a.isEmpty() ? b : b.isEmpty() ? a : OptionalLong.of(Math.min(a.getAsLong(), b.getAsLong())));
+    }
+
+    /**
+     * @return Asyncable completed with the largest value when the array completes, empty if it has none
+     */
+    public Asyncable<OptionalLong> max() {
+        return reduce(view -> {
+            if (view.limit() == 0) return OptionalLong.empty();
+            long max = view.get(0);
+            for (int i = 1; i < view.limit(); i++) max = Math.max(max, view.get(i));
+            return OptionalLong.of(max);
+        }, (a, b) -> a.isEmpty() ? b : b.isEmpty() ? a : OptionalLong.of(Math.max(a.getAsLong(), b.getAsLong())));
+    }
+
+    /**
+     * Replace every value with mapper applied to it, once the array completes
+     * @param mapper
+     * @return Asyncable completed when every chunk is mapped, failed with ReadOnlyBufferException on a read-only mapped file
+     */
+    public Asyncable<Void> mapInPlace(LongUnaryOperator mapper) {
+        return reduce(view -> {
+            for (int i = 0; i < view.limit(); i++) view.put(i, mapper.applyAsLong(view.get(i)));
+            return null;
+        }, (a, b) -> null);
+    }
+
+    /**
+     * Run part on every chunk in its own task once the array completes, and combine the results in chunk order
+     * @param part
+     * @param combine
+     * @return AsyncableR
+     */
+    private <R> Asyncable<R> reduce(Function<LongBuffer, R> part, BinaryOperator<R> combine) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        onComplete(() -> {
+            int n = size;
+            int parts = Math.max(1, chunkCount(n));
+            List<CompletableFuture<R>> tasks = new ArrayList<>(parts);
+            for (int k = 0; k < parts; k++) {
+                int count = Math.min(CHUNK, n - k * CHUNK);
+                ByteBuffer chunk = chunks[k];
+                tasks.add(Async.async(() -> part.apply(chunk == null ? LongBuffer.allocate(0) : chunk.asLongBuffer().limit(count))).getDelegate());
+            }
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    return;
+                }
+                R combined = tasks.get(0).join();
+                for (int k = 1; k < parts; k++) combined = combine.apply(combined, tasks.get(k).join());
+                result.complete(combined);
+            });
+        });
+        return new Asyncable<>(result);
+    }
+
+    /**
+     * @return Asyncablelongarray completed with every value when the array completes
+     */
+    public Asyncable<long[]> awaitToArray() {
+        CompletableFuture<long[]> values = new CompletableFuture<>();
+        onComplete(() -> values.complete(toArray()));
+        return new Asyncable<>(values);
+    }
+
+    @Override
+    public Asyncable<?> awaitToArray(Function<Integer, ?> generator) {
+        return awaitToArray().then(values -> {
+            Long[] boxed = (Long[]) generator.apply(values.length);
+            for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+            return boxed;
+        });
+    }
+
+    @Override
+    public Asyncable<List<?>> awaitToList() {
+        return awaitToArray().then(values -> Arrays.stream(values).boxed().toList());
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong asyncIterator() {
+        return stream().iterator();
+    }
+}
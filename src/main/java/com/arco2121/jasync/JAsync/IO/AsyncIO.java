@@ -8,6 +8,7 @@ import com.arco2121.jasync.JAsync.Running.Asyncable;
 import com.arco2121.jasync.Types.Exceptions.CannotDeconstructONException;
 import com.arco2121.jasync.Types.Exceptions.InvalidResourceException;
 import com.arco2121.jasync.Types.Exceptions.NotONException;
+import com.arco2121.jasync.Types.Exceptions.ThrowCallable;
 import com.arco2121.jasync.Types.Interfaces.ObjectNotations.JSONable;
 import com.arco2121.jasync.Types.Interfaces.ObjectNotations.TOONable;
 
@@ -19,8 +20,13 @@ import java.net.http.HttpResponse;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Scanner;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -32,6 +38,7 @@ public final class AsyncIO {
 
     private static final HttpClient CLIENT = HttpClient.newHttpClient();
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int DEFAULT_CAPACITY = 8192;
 
     public enum Method {
         GET, POST, PUT
@@ -133,6 +140,32 @@ public final class AsyncIO {
         }
     }
 
+    /**
+     * Move the items produced by reader into the queue until it returns null, without holding a thread while the queue is full, a read failure closes the queue with that error
+     */
+    private static <T> void pump(AsyncQueue<T> queue, ThrowCallable<T> reader, AutoCloseable resource) {
+        Exception failure = null;
+        try {
+            while (true) {
+                T item = reader.call();
+                if (item == null) break;
+                Asyncable<Boolean> added = queue.addAsync(item);
+                if (!added.isDone()) {
+                    //Resumed on the backend: the add completes inside the consumer's take, which must not block on the reader
+                    added.getDelegate().thenRun(() -> Async.async(() -> pump(queue, reader, resource)));
+                    return;
+                }
+                if (!added.getDelegate().join()) break;
+            }
+        } catch (Exception e) {
+            failure = e;
+        }
+        try {
+            resource.close();
+        } catch (Exception ignore) {}
+        queue.close(failure);
+    }
+
     public static <T> AsyncList<T> memorize(AsyncQueue<T> queue) {
         AsyncList<T> result = new AsyncList<>();
         queue.forEach(result::add);
@@ -242,39 +275,66 @@ public final class AsyncIO {
         }
 
         public static <T> AsyncQueue<T> fetchBinaries(Resource source, Function<Object, T> change) throws ClassCastException {
-            AsyncQueue<T> queue = new AsyncQueue<>();
-            Async.await(() -> {
-                try (InputStream is = getStream(source);
-                     ObjectInputStream ois = new ObjectInputStream(is)) {
-                    while (true) {
+            return fetchBinaries(source, change, DEFAULT_CAPACITY);
+        }
+        /**
+         * Stream the serialized objects of a resource, reading pauses while the queue is full
+         * @param source
+         * @param change null results are skipped
+         * @param capacity maximum number of objects kept in memory
+         * @return AsyncQueueT
+         * @param <T>
+         */
+        public static <T> AsyncQueue<T> fetchBinaries(Resource source, Function<Object, T> change, int capacity) throws ClassCastException {
+            AsyncQueue<T> queue = new AsyncQueue<>(capacity, AsyncQueue.Overflow.BLOCK);
+            Async.async(() -> {
+                try {
+                    InputStream is = getStream(source);
+                    ObjectInputStream ois = new ObjectInputStream(is);
+                    pump(queue, () -> {
                         try {
-                            queue.add((T) ois.readObject());
-                        } catch (EOFException e) { break; }
-                    }
+                            while (true) {
+                                T obj = change.apply(ois.readObject());
+                                if (obj != null) return obj;
+                            }
+                        } catch (EOFException e) {
+                            return null;
+                        }
+                    }, ois);
                 } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    queue.close();
+                    queue.close(e);
                 }
-                return null;
             });
             return queue;
         }
 
         public static <T> AsyncQueue<T> fetchLines(Resource source, Function<String, T> transformation) throws ClassCastException {
-            AsyncQueue<T> queue = new AsyncQueue<>();
-            Async.await(() -> {
-                try (Stream<String> lines = getText(source)) {
-                    lines.forEach(line -> {
-                        T obj = transformation.apply(line);
-                        if (obj != null) queue.add(obj);
-                    });
+            return fetchLines(source, transformation, DEFAULT_CAPACITY);
+        }
+        /**
+         * Stream the lines of a resource, reading pauses while the queue is full
+         * @param source
+         * @param transformation null results are skipped
+         * @param capacity maximum number of lines kept in memory
+         * @return AsyncQueueT
+         * @param <T>
+         */
+        public static <T> AsyncQueue<T> fetchLines(Resource source, Function<String, T> transformation, int capacity) throws ClassCastException {
+            AsyncQueue<T> queue = new AsyncQueue<>(capacity, AsyncQueue.Overflow.BLOCK);
+            Async.async(() -> {
+                try {
+                    Stream<String> lines = getText(source);
+                    Iterator<String> iterator = lines.iterator();
+                    pump(queue, () -> {
+                        while (iterator.hasNext()) {
+                            T obj = transformation.apply(iterator.next());
+                            if (obj != null) return obj;
+                        }
+                        return null;
+                    }, lines);
                 } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    queue.close();
+                    queue.close(e);
                 }
-                return null;
             });
             return queue;
         }
@@ -365,5 +425,44 @@ public final class AsyncIO {
                 return null;
             });
         }
+
+        /**
+         * Write the buffers in order. Files and channel-backed sockets get a gathering write, so direct buffers reach
+         * the OS without a copy; other destinations go through their stream. The buffers themselves are not consumed
+         * @param destination
+         * @param buffers
+         * @return Asyncable completed with the bytes written
+         */
+        public static Asyncable<Long> sendBuffers(Resource destination, ByteBuffer... buffers) {
+            Object res = destination.source;
+            ByteBuffer[] views = Arrays.stream(buffers).map(ByteBuffer::duplicate).toArray(ByteBuffer[]::new);
+            return Async.async(() -> {
+                if (res instanceof Path path) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        return gather(channel, views);
+                    }
+                }
+                if (res instanceof FileChannel channel) return gather(channel, views);
+                if (res instanceof Socket socket && socket.getChannel() != null) return gather(socket.getChannel(), views);
+                OutputStream os = pushSteam(destination);
+                if (os == null) throw new InvalidResourceException("Destination not supported: " + res.getClass().getName());
+                long written = 0;
+                try (WritableByteChannel channel = Channels.newChannel(os)) {
+                    for (ByteBuffer view : views) {
+                        while (view.hasRemaining()) written += channel.write(view);
+                    }
+                }
+                return written;
+            });
+        }
+
+        private static long gather(GatheringByteChannel channel, ByteBuffer[] views) throws IOException {
+            long written = 0;
+            for (int first = 0; first < views.length; ) {
+                written += channel.write(views, first, views.length - first);
+                while (first < views.length && !views[first].hasRemaining()) first++;
+            }
+            return written;
+        }
     }
 }
\ No newline at end of file
@@ -1,88 +1,604 @@
 package com.arco2121.jasync.JAsync.IO;
 
+import com.arco2121.jasync.Types.Interfaces.Aggregator;
 import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
+import com.arco2121.jasync.Types.Interfaces.AsyncIterator;
+import com.arco2121.jasync.Types.Interfaces.Codec;
 import com.arco2121.jasync.JAsync.Async;
 import com.arco2121.jasync.JAsync.Running.Asyncable;
+import com.arco2121.jasync.Types.Queues.MpmcRingQueue;
+import com.arco2121.jasync.Types.Queues.RingQueue;
+import com.arco2121.jasync.Types.Queues.SpillQueue;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Collections;
+import java.util.Optional;
 
 public final class AsyncQueue<T> implements AsyncCollection {
 
-    private final BlockingQueue<T> queue = new LinkedBlockingQueue<>();
-    private final Object CLOSE = new Object();
+    /**
+     * What add does when a bounded queue is full
+     */
+    public enum Overflow {
+        BLOCK, DROP_NEWEST, DROP_OLDEST
+    }
+
+    /**
+     * Storage behind the queue: LINKED is a linked blocking queue, RING a lock-free array ring buffer sized to the
+     * next power of two. There is no single producer or single consumer ring: the queue polls its storage from
+     * producer threads (pulls, addAsync, DROP_OLDEST) and offers to it from consumer threads (close, carried items),
+     * so RING is always the ring for many producers and consumers. Unbounded queues always use LINKED
+     */
+    public enum Hint {
+        LINKED, RING
+    }
+
+    /**
+     * Result of a window: start and end are item positions for count windows and epoch milliseconds for time
+     * and session windows, end excluded
+     */
+    public record Window<R>(long start, long end, long count, R value) {}
+
+    private record Pending(Object item, CompletableFuture<Boolean> done) {}
+
+    private record Puller(AsyncQueue<?> view, CompletableFuture<Optional<Object>> future) {}
+
+    private enum Windowing {
+        COUNT, TIME, SESSION
+    }
+
+    private static final class Slot<A> {
+        final long start;
+        long end;
+        long count = 0;
+        A accumulator;
+
+        Slot(long start, long end, A accumulator) {
+            this.start = start;
+            this.end = end;
+            this.accumulator = accumulator;
+        }
+    }
+
+    private static final Object CLOSE = new Object();
+    private static final int DEFAULT_PREFETCH = 128;
+    private static final int DEFAULT_BROADCAST_CAPACITY = 1024;
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Function<Object, Object>[] NO_STAGES = new Function[0];
+    private final AsyncQueue<Object> root;
+    private final Function<Object, Object>[] stages;
+    private final BlockingQueue<Object> queue;
+    private final int capacity;
+    private final Overflow overflow;
     private volatile boolean closed = false;
+    private volatile Throwable error;
+    //CLOSE is in the storage. It is retried whenever an item leaves, so closing never depends on free space
+    private volatile boolean sealed = false;
+    private final Object sealLock = new Object();
+    //Consumers inside take, seal and carry read it to reach the ones blocked on the storage
+    private final AtomicInteger takers = new AtomicInteger();
     private final List<Runnable> closeListeners = new ArrayList<>();
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Puller> pullers = new ConcurrentLinkedQueue<>();
+    //Items taken for a pull cancelled meanwhile, they come before the storage for every consumer
+    private final Deque<Object> carried = new ConcurrentLinkedDeque<>();
+
+    public AsyncQueue() {
+        this(Integer.MAX_VALUE, Overflow.BLOCK);
+    }
+    /**
+     * Bounded queue
+     * @param capacity maximum number of queued items
+     * @param overflow what add does when the queue is full
+     */
+    public AsyncQueue(int capacity, Overflow overflow) {
+        this(capacity, overflow, Hint.LINKED);
+    }
+    /**
+     * Bounded queue with the given storage
+     * @param capacity maximum number of queued items, rounded up to a power of two for ring buffers
+     * @param overflow what add does when the queue is full
+     * @param hint
+     */
+    @SuppressWarnings("unchecked")
+    public AsyncQueue(int capacity, Overflow overflow, Hint hint) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        //A ring is allocated whole, an unbounded one would take gigabytes before the first item
+        this.queue = hint == Hint.LINKED || capacity == Integer.MAX_VALUE
+                ? new LinkedBlockingQueue<>(capacity)
+                : new MpmcRingQueue<>(capacity);
+        this.capacity = queue instanceof RingQueue<?> ring ? ring.capacity() : capacity;
+        this.overflow = overflow;
+        this.root = (AsyncQueue<Object>) this;
+        this.stages = NO_STAGES;
+    }
+    /**
+     * Unbounded queue keeping headCapacity items in heap, the items beyond are encoded and spilled to memory
+     * mapped segment files, so a burst does not grow the heap. The items left in the directory by a previous
+     * queue are delivered first
+     * @param headCapacity items kept in heap
+     * @param directory where the segments are written, one queue per directory
+     * @param codec
+     * @param fsync force every write to disk and skip the heap head, the items not consumed survive a crash
+     */
+    @SuppressWarnings("unchecked")
+    public AsyncQueue(int headCapacity, Path directory, Codec<T> codec, boolean fsync) {
+        this.queue = new SpillQueue<>(headCapacity, directory, (Codec<Object>) codec, SpillQueue.DEFAULT_SEGMENT_BYTES, fsync, CLOSE);
+        this.capacity = Integer.MAX_VALUE;
+        this.overflow = Overflow.BLOCK;
+        this.root = (AsyncQueue<Object>) this;
+        this.stages = NO_STAGES;
+    }
+    public AsyncQueue(int headCapacity, Path directory, Codec<T> codec) {
+        this(headCapacity, directory, codec, false);
+    }
+    //Output of a broadcast, reading the shared buffer through its cursor
+    @SuppressWarnings("unchecked")
+    private AsyncQueue(QueueBroadcast.Cursor cursor) {
+        this.queue = cursor;
+        this.capacity = Integer.MAX_VALUE;
+        this.overflow = Overflow.BLOCK;
+        this.root = (AsyncQueue<Object>) this;
+        this.stages = NO_STAGES;
+    }
+    /**
+     * View reading the storage of root through the fused stages, it has no storage of its own
+     */
+    private AsyncQueue(AsyncQueue<Object> root, Function<Object, Object>[] stages) {
+        this.root = root;
+        this.stages = stages;
+        this.queue = root.queue;
+        this.capacity = root.capacity;
+        this.overflow = root.overflow;
+    }
 
+    /**
+     * Add an item, when the queue is full the Overflow policy decides: wait for space, drop the item, or drop the oldest item
+     * @param item
+     */
     public void add(T item) {
-        if (!closed && item != null) queue.offer(item);
+        readOnlyView();
+        if (closed || item == null) return;
+        switch (overflow) {
+            case BLOCK -> {
+                try {
+                    queue.put(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            case DROP_NEWEST -> queue.offer(item);
+            case DROP_OLDEST -> {
+                while (!queue.offer(item)) {
+                    Object dropped = queue.poll();
+                    if (dropped == CLOSE) {
+                        reseal();
+                        return;
+                    }
+                }
+            }
+        }
+        if (!pullers.isEmpty()) dispatch();
+    }
+
+    /**
+     * Add an item without blocking the caller
+     * @param item
+     * @return AsyncableBoolean completed with true when the item is queued, false if the queue was closed before
+     */
+    public Asyncable<Boolean> addAsync(T item) {
+        readOnlyView();
+        if (closed || item == null) return new Asyncable<>(CompletableFuture.completedFuture(false));
+        if (pending.isEmpty() && queue.offer(item)) {
+            if (!pullers.isEmpty()) dispatch();
+            return new Asyncable<>(CompletableFuture.completedFuture(true));
+        }
+        Pending waiting = new Pending(item, new CompletableFuture<>());
+        pending.add(waiting);
+        movePending();
+        if (closed) dropPending();
+        return new Asyncable<>(waiting.done());
     }
 
+    /**
+     * Close the queue, on a map/filter view it closes the queue the view reads from
+     */
     public synchronized void close() {
+        close(null);
+    }
+
+    /**
+     * Close the queue because its source failed: the items already queued are still delivered, then the
+     * publishers of the queue signal the error instead of completing
+     * @param error
+     */
+    public synchronized void close(Throwable error) {
+        if (root != this) {
+            root.close(error);
+            return;
+        }
         if (closed) return;
+        this.error = error;
         closed = true;
-        queue.offer((T) CLOSE);
+        dropPending();
+        seal();
+        if (!pullers.isEmpty()) dispatch();
         closeListeners.forEach(Runnable::run);
     }
 
     public synchronized void onClose(Runnable callback) {
-        if (closed) callback.run();
+        if (root != this) root.onClose(callback);
+        else if (closed) callback.run();
         else closeListeners.add(callback);
     }
 
+    /**
+     * Lazily map the items, consecutive map/filter calls are fused into a single stage run by the consumer
+     * of the returned queue, which is a read-only view. A null result drops the item
+     * @param mapper
+     * @return AsyncQueueR
+     * @param <R>
+     */
+    @SuppressWarnings("unchecked")
     public <R> AsyncQueue<R> map(Function<T, R> mapper) {
-        AsyncQueue<R> newQueue = new AsyncQueue<>();
-        this.forEach(item -> newQueue.add(mapper.apply(item)));
-        this.onClose(newQueue::close);
-        return newQueue;
+        return fuse(item -> mapper.apply((T) item));
     }
 
+    /**
+     * Lazily filter the items, fused like map
+     * @param condition
+     * @return AsyncQueueT
+     */
+    @SuppressWarnings("unchecked")
     public AsyncQueue<T> filter(Predicate<T> condition) {
+        return fuse(item -> condition.test((T) item) ? item : null);
+    }
+
+    /**
+     * Async boundary: move the items into a new queue on their own consumer, so the stages before
+     * and after it run on different threads
+     * @return AsyncQueueT
+     */
+    @SuppressWarnings("unchecked")
+    public AsyncQueue<T> materialize() {
         AsyncQueue<T> newQueue = new AsyncQueue<>();
-        this.forEach(item -> {
-            if (condition.test(item)) newQueue.add(item);
+        Async.async(() -> {
+            try {
+                while (true) {
+                    Object item = next();
+                    if (item == CLOSE) break;
+                    newQueue.add((T) item);
+                }
+            } finally {
+                //Closed once drained, closing on onClose would drop the items still being moved
+                newQueue.close();
+            }
+            return null;
         });
-        this.onClose(newQueue::close);
         return newQueue;
     }
 
+    /**
+     * Map the items with an async mapper, running up to parallelism calls at a time and emitting the results
+     * in input order. While the window is full no more items are taken, so a bounded source pushes back on its
+     * producers. Items whose mapper fails or returns null are dropped
+     * @param parallelism
+     * @param mapper
+     * @return AsyncQueueR closed once every call has completed
+     * @param <R>
+     */
+    public <R> AsyncQueue<R> mapAsync(int parallelism, Function<T, Asyncable<R>> mapper) {
+        return mapAsync(parallelism, mapper, true);
+    }
+
+    /**
+     * Like mapAsync, but the results are emitted as the calls complete
+     * @param parallelism
+     * @param mapper
+     * @return AsyncQueueR
+     * @param <R>
+     */
+    public <R> AsyncQueue<R> mapAsyncUnordered(int parallelism, Function<T, Asyncable<R>> mapper) {
+        return mapAsync(parallelism, mapper, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> AsyncQueue<R> mapAsync(int parallelism, Function<T, Asyncable<R>> mapper, boolean ordered) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive");
+        AsyncQueue<R> output = new AsyncQueue<>();
+        Semaphore window = new Semaphore(parallelism);
+        Deque<CompletableFuture<R>> inFlight = new ArrayDeque<>();
+        boolean[] drained = { false };
+        Runnable emit = () -> {
+            synchronized (inFlight) {
+                Iterator<CompletableFuture<R>> calls = inFlight.iterator();
+                while (calls.hasNext()) {
+                    CompletableFuture<R> call = calls.next();
+                    if (!call.isDone()) {
+                        if (ordered) break;
+                        continue;
+                    }
+                    calls.remove();
+                    window.release();
+                    if (!call.isCompletedExceptionally()) output.add(call.join());
+                }
+                if (drained[0] && inFlight.isEmpty()) output.close();
+            }
+        };
+        Async.async(() -> {
+            try {
+                while (true) {
+                    Object item = next();
+                    if (item == CLOSE) break;
+                    window.acquire();
+                    CompletableFuture<R> call;
+                    try {
+                        call = mapper.apply((T) item).getDelegate();
+                    } catch (RuntimeException e) {
+                        call = CompletableFuture.failedFuture(e);
+                    }
+                    synchronized (inFlight) {
+                        inFlight.add(call);
+                    }
+                    call.whenComplete((value, error) -> emit.run());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                synchronized (inFlight) {
+                    drained[0] = true;
+                }
+                emit.run();
+            }
+            return null;
+        });
+        return output;
+    }
+
+    private <R> AsyncQueue<R> fuse(Function<Object, Object> stage) {
+        Function<Object, Object>[] fused = Arrays.copyOf(stages, stages.length + 1);
+        fused[stages.length] = stage;
+        return new AsyncQueue<>(root, fused);
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public Asyncable<List<?>> awaitToList() {
         return Async.async(() -> {
             List<T> list = new ArrayList<>();
             while (true) {
-                T item = queue.take();
-                if (item == CLOSE) {
-                    queue.offer((T) CLOSE);
-                    break;
-                }
-                list.add(item);
+                Object item = next();
+                if (item == CLOSE) break;
+                list.add((T) item);
             }
             return list;
         });
     }
 
+    /**
+     * Consume the queue without holding a thread: each next() is completed by the producer that adds the awaited
+     * item, or by close. A pull cancelled after its item was taken leaves the item to the next pull
+     * @return AsyncIteratorT
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public AsyncIterator<T> pull() {
+        return () -> {
+            CompletableFuture<Optional<Object>> future = new CompletableFuture<>();
+            root.pullers.add(new Puller(this, future));
+            root.dispatch();
+            return new Asyncable<>((CompletableFuture<Optional<T>>) (CompletableFuture<?>) future);
+        };
+    }
+
+    /**
+     * Publisher taking items from this queue, each subscriber competes with the other consumers. Items ready in the
+     * queue are drained in batches of up to prefetch within the requested demand, a subscriber waiting for new items
+     * holds a pull instead of a thread
+     * @param prefetch
+     * @return Flow.PublisherT
+     */
+    public Flow.Publisher<T> asPublisher(int prefetch) {
+        if (prefetch < 1) throw new IllegalArgumentException("Prefetch must be positive");
+        return subscriber -> subscriber.onSubscribe(new Publication(subscriber, prefetch));
+    }
+    public Flow.Publisher<T> asPublisher() {
+        return asPublisher(DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Subscriber adding the received items to this queue, the upstream is asked for more only as the items find
+     * space, and the queue is closed when the upstream completes or fails, with the failure kept in error()
+     * @param prefetch items requested in advance
+     * @return Flow.SubscriberT
+     */
+    public Flow.Subscriber<T> asSubscriber(int prefetch) {
+        readOnlyView();
+        if (prefetch < 1) throw new IllegalArgumentException("Prefetch must be positive");
+        int limit = prefetch - (prefetch >> 2);
+        return new Flow.Subscriber<>() {
+            private final AtomicInteger queued = new AtomicInteger();
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                if (this.subscription != null || closed) {
+                    subscription.cancel();
+                    return;
+                }
+                this.subscription = subscription;
+                subscription.request(prefetch);
+            }
+
+            @Override
+            public void onNext(T item) {
+                addAsync(item).getDelegate().thenAccept(added -> {
+                    //Closed meanwhile, the upstream has nowhere left to send
+                    if (!added) {
+                        subscription.cancel();
+                        return;
+                    }
+                    //Replenish in batches, a request per item would double the signals
+                    if (queued.incrementAndGet() == limit) {
+                        queued.addAndGet(-limit);
+                        subscription.request(limit);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                close(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                close();
+            }
+        };
+    }
+    public Flow.Subscriber<T> asSubscriber() {
+        return asSubscriber(DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Interleave the items of the queues as they arrive, every queue is pulled without holding a thread and
+     * the queues take turns after a burst of items
+     * @param queues
+     * @return AsyncQueueT closed when every queue is closed and drained
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    public static <T> AsyncQueue<T> merge(AsyncQueue<? extends T>... queues) {
+        AsyncQueue<T> output = new AsyncQueue<>();
+        if (queues.length == 0) output.close();
+        AtomicInteger open = new AtomicInteger(queues.length);
+        for (AsyncQueue<? extends T> queue : queues) {
+            pump((AsyncIterator<T>) queue.pull(), item -> output.addAsync(item).getDelegate(), () -> {
+                if (open.decrementAndGet() == 0) output.close();
+            });
+        }
+        return output;
+    }
+
+    /**
+     * Combine the items of two queues in pairs
+     * @param first
+     * @param second
+     * @param combiner
+     * @return AsyncQueueR closed as soon as one of the queues is over, the other keeps its unpaired items
+     */
+    @SuppressWarnings("unchecked")
+    public static <A, B, R> AsyncQueue<R> zip(AsyncQueue<A> first, AsyncQueue<B> second, BiFunction<? super A, ? super B, ? extends R> combiner) {
+        AsyncQueue<R> output = new AsyncQueue<>();
+        AsyncIterator<R> pairs = () -> {
+            AtomicReference<CompletableFuture<Optional<Object>>> leftPull = new AtomicReference<>();
+            AtomicReference<CompletableFuture<Optional<Object>>> rightPull = new AtomicReference<>();
+            CompletableFuture<Optional<Object[]>> a = first.pullKept(leftPull);
+            CompletableFuture<Optional<Object[]>> b = second.pullKept(rightPull);
+            //One side is over: the pull still waiting on the other is withdrawn, or its item handed back
+            a.thenAccept(item -> { if (item.isEmpty()) second.withdraw(rightPull, b); });
+            b.thenAccept(item -> { if (item.isEmpty()) first.withdraw(leftPull, a); });
+            return new Asyncable<>(a.thenCombine(b, (x, y) -> x.isPresent() && y.isPresent()
+                    ? Optional.ofNullable(combiner.apply((A) x.get()[1], (B) y.get()[1])) : Optional.empty()));
+        };
+        pump(pairs, item -> output.addAsync(item).getDelegate(), output::close);
+        return output;
+    }
+
+    /**
+     * Fan the items out to n queues that all receive every item. The items are stored once, in a buffer shared by
+     * the outputs, each reading it at its own pace; the outputs are read-only and closing one detaches it.
+     * The outputs are coupled by the capacity window: an output that stops reading holds every other one back once
+     * it is capacity items behind. Consume them with pull, a publisher or one thread each; blocking consumers such
+     * as forEach on an executor with fewer threads than outputs deadlock, because the output that would free the
+     * window never gets a thread
+     * @param n
+     * @param capacity how far the fastest output can get ahead of the slowest one
+     * @return ListAsyncQueueT closed when this queue is over
+     */
+    public List<AsyncQueue<T>> broadcast(int n, int capacity) {
+        if (n < 1 || capacity < 1) throw new IllegalArgumentException("Outputs and capacity must be positive");
+        QueueBroadcast shared = new QueueBroadcast(n, capacity, CLOSE);
+        List<AsyncQueue<T>> outputs = new ArrayList<>(n);
+        for (QueueBroadcast.Cursor cursor : shared.cursors()) outputs.add(new AsyncQueue<>(cursor));
+        //A closed output is detached, the writes no longer wake it
+        List<AsyncQueue<T>> reading = new CopyOnWriteArrayList<>(outputs);
+        for (AsyncQueue<T> output : outputs) output.onClose(() -> reading.remove(output));
+        shared.onWrite(() -> {
+            for (AsyncQueue<T> output : reading) if (!output.pullers.isEmpty()) output.dispatch();
+        });
+        pump(pull(), shared::offer, () -> {
+            shared.finish();
+            outputs.forEach(AsyncQueue::close);
+        });
+        return Collections.unmodifiableList(outputs);
+    }
+    public List<AsyncQueue<T>> broadcast(int n) {
+        return broadcast(n, DEFAULT_BROADCAST_CAPACITY);
+    }
+
+    /**
+     * Shard the items over n queues by key, the items with the same key go to the same queue in order
+     * @param key
+     * @param n
+     * @param capacity of each output, a full output holds the others back
+     * @return ListAsyncQueueT closed when this queue is over
+     */
+    public List<AsyncQueue<T>> partition(Function<? super T, ?> key, int n, int capacity) {
+        if (n < 1) throw new IllegalArgumentException("Partitions must be positive");
+        List<AsyncQueue<T>> outputs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) outputs.add(new AsyncQueue<>(capacity, Overflow.BLOCK));
+        pump(pull(), item -> {
+            AsyncQueue<T> output = outputs.get(Math.floorMod(Objects.hashCode(key.apply(item)), n));
+            //A closed output drops its share, the others go on
+            return output.addAsync(item).getDelegate().thenApply(queued -> queued || outputs.stream().anyMatch(o -> !o.isClosed()));
+        }, () -> outputs.forEach(AsyncQueue::close));
+        return Collections.unmodifiableList(outputs);
+    }
+    public List<AsyncQueue<T>> partition(Function<? super T, ?> key, int n) {
+        return partition(key, n, Integer.MAX_VALUE);
+    }
+
     @Override
     public Iterator<?> asyncIterator() {
-        return queue.iterator();
+        return queue.stream().filter(item -> item != CLOSE).map(this::apply).filter(item -> item != null).iterator();
     }
 
+    @SuppressWarnings("unchecked")
     public void forEach(Consumer<T> action) {
         Async.async(() -> {
             try {
                 while (true) {
-                    T item = queue.take();
-                    if (item == CLOSE) {
-                        queue.offer((T)CLOSE);
-                        break;
-                    }
-                    action.accept(item);
+                    Object item = next();
+                    if (item == CLOSE) break;
+                    action.accept((T) item);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -91,16 +607,665 @@ public final class AsyncQueue<T> implements AsyncCollection {
         });
     }
 
+    /**
+     * Group the items in lists of up to maxSize. When the queue is busy a batch waits up to maxWaitMs to fill,
+     * when it is idle the items are emitted as soon as they arrive
+     * @param maxSize
+     * @param maxWaitMs
+     * @return AsyncQueueListT closed once the queue is drained
+     */
+    public AsyncQueue<List<T>> batch(int maxSize, long maxWaitMs) {
+        AsyncQueue<List<T>> output = new AsyncQueue<>();
+        batches(maxSize, maxWaitMs, output::add, false, output::close);
+        return output;
+    }
+
+    /**
+     * Consume the items in batches of up to maxSize, each batch is what is ready when the previous one is done.
+     * The list is reused: it is only valid during the call
+     * @param maxSize
+     * @param action
+     */
+    public void forEachBatch(int maxSize, Consumer<List<T>> action) {
+        batches(maxSize, 0, action, true, null);
+    }
+    /**
+     * Consume the items in batches of up to maxSize, lingering up to maxWaitMs to fill a batch when the queue is busy
+     * @param maxSize
+     * @param maxWaitMs
+     * @param action
+     */
+    public void forEachBatch(int maxSize, long maxWaitMs, Consumer<List<T>> action) {
+        batches(maxSize, maxWaitMs, action, true, null);
+    }
+
+    /**
+     * Aggregate the items of the whole stream
+     * @param aggregator
+     * @return AsyncableR completed when the queue is closed and drained
+     */
+    @SuppressWarnings("unchecked")
+    public <A, R> Asyncable<R> aggregate(Aggregator<T, A, R> aggregator) {
+        return Async.async(() -> {
+            A accumulator = aggregator.create();
+            while (true) {
+                Object item = next();
+                if (item == CLOSE) break;
+                accumulator = aggregator.add(accumulator, (T) item);
+            }
+            return aggregator.result(accumulator);
+        });
+    }
+
+    /**
+     * Aggregate the items of each key separately
+     * @param key
+     * @param aggregator
+     * @return AsyncableMapKR completed when the queue is closed and drained
+     */
+    public <K, A, R> Asyncable<Map<K, R>> groupBy(Function<T, K> key, Aggregator<T, A, R> aggregator) {
+        return aggregate(Aggregator.groupBy(key, aggregator));
+    }
+
+    /**
+     * Aggregate every count items. Combined with Aggregator.groupBy it gives per key windows.
+     * Windows still open when the queue closes are emitted partial
+     * @param count
+     * @param aggregator
+     * @return AsyncQueueWindowR
+     */
+    public <A, R> AsyncQueue<Window<R>> tumbling(int count, Aggregator<T, A, R> aggregator) {
+        return windows(Windowing.COUNT, count, count, Long.MAX_VALUE, aggregator);
+    }
+
+    /**
+     * Aggregate the last count items every step items, each window keeps only its accumulator
+     * @param count
+     * @param step
+     * @param aggregator
+     * @return AsyncQueueWindowR
+     */
+    public <A, R> AsyncQueue<Window<R>> sliding(int count, int step, Aggregator<T, A, R> aggregator) {
+        return windows(Windowing.COUNT, count, step, Long.MAX_VALUE, aggregator);
+    }
+
+    /**
+     * Aggregate the items arriving in consecutive periods aligned to the epoch, periods without items emit nothing
+     * @param millis
+     * @param aggregator
+     * @return AsyncQueueWindowR
+     */
+    public <A, R> AsyncQueue<Window<R>> tumblingTime(long millis, Aggregator<T, A, R> aggregator) {
+        return windows(Windowing.TIME, millis, millis, Long.MAX_VALUE, aggregator);
+    }
+
+    /**
+     * Aggregate the items of the last millis, every stepMillis
+     * @param millis
+     * @param stepMillis
+     * @param aggregator
+     * @return AsyncQueueWindowR
+     */
+    public <A, R> AsyncQueue<Window<R>> slidingTime(long millis, long stepMillis, Aggregator<T, A, R> aggregator) {
+        return windows(Windowing.TIME, millis, stepMillis, Long.MAX_VALUE, aggregator);
+    }
+
+    /**
+     * Aggregate bursts of items, a window ends after gapMillis without items
+     * @param gapMillis
+     * @param aggregator
+     * @return AsyncQueueWindowR
+     */
+    public <A, R> AsyncQueue<Window<R>> session(long gapMillis, Aggregator<T, A, R> aggregator) {
+        return windows(Windowing.SESSION, gapMillis, gapMillis, Long.MAX_VALUE, aggregator);
+    }
+    /**
+     * Aggregate bursts of items, a window ends after gapMillis without items or once it has maxCount items
+     * @param gapMillis
+     * @param maxCount
+     * @param aggregator
+     * @return AsyncQueueWindowR
+     */
+    public <A, R> AsyncQueue<Window<R>> session(long gapMillis, int maxCount, Aggregator<T, A, R> aggregator) {
+        return windows(Windowing.SESSION, gapMillis, gapMillis, maxCount, aggregator);
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public Asyncable<T[]> awaitToArray(Function<Integer, ?> sizer) {
         return this.awaitToList().then(list -> list.toArray((T[]) sizer.apply(list.size())));
     }
 
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return queue.isEmpty() || queue.peek() == CLOSE;
     }
 
     public int partialSize() {
-        return queue.size();
+        int size = queue.size();
+        return root.closed && size > 0 && queue.contains(CLOSE) ? size - 1 : size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isClosed() {
+        return root.closed;
+    }
+
+    /**
+     * @return Throwable the failure the queue was closed with, null if it is open or was closed normally
+     */
+    public Throwable error() {
+        return root.error;
+    }
+
+    //Internal
+    private static <X> void pump(AsyncIterator<X> source, Function<X, CompletableFuture<Boolean>> sink, Runnable end) {
+        Async.async(new Pump<>(source, sink, end));
+    }
+
+    /**
+     * Moves the items of a pull iterator into a sink in bursts run on the Async backend. A burst goes on while the
+     * steps complete at once; a step that completes later submits the rest to the backend instead of running it on
+     * the producer or consumer that completed it, and after BURST items the pump is submitted again so the pumps
+     * take turns. No thread is held between bursts, but on a fixed pool a burst needs a free thread: consumers
+     * blocked in take on every thread of the pool stall the pumps feeding them
+     */
+    private static final class Pump<X> implements Runnable {
+
+        private static final int BURST = 64;
+        private final AsyncIterator<X> source;
+        private final Function<X, CompletableFuture<Boolean>> sink;
+        private final Runnable end;
+
+        Pump(AsyncIterator<X> source, Function<X, CompletableFuture<Boolean>> sink, Runnable end) {
+            this.source = source;
+            this.sink = sink;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int burst = 0; burst < BURST; burst++) {
+                    CompletableFuture<Optional<X>> pulled = source.next().getDelegate();
+                    if (!pulled.isDone()) {
+                        pulled.whenComplete((item, error) -> Async.async(() -> {
+                            if (error != null) end.run();
+                            else if (accept(item)) run();
+                        }));
+                        return;
+                    }
+                    if (!accept(pulled.join())) return;
+                }
+                Async.async(this);
+            } catch (RuntimeException e) {
+                end.run();
+            }
+        }
+
+        //False when this call stops: the source is over, the sink refused, or the sink accepts later
+        private boolean accept(Optional<X> item) {
+            if (item.isEmpty()) {
+                end.run();
+                return false;
+            }
+            CompletableFuture<Boolean> accepted = sink.apply(item.get());
+            if (accepted.isDone() && !accepted.isCompletedExceptionally() && accepted.join()) return true;
+            accepted.whenComplete((queued, error) -> Async.async(() -> {
+                if (Boolean.TRUE.equals(queued)) run();
+                else end.run();
+            }));
+            return false;
+        }
+    }
+
+    private final class Publication implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final int prefetch;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private final List<Object> buffer = new ArrayList<>();
+        private volatile boolean cancelled = false;
+        //Raw items straight from the storage, so one pulled after a cancel can go back unchanged
+        private volatile CompletableFuture<Optional<Object>> waiting;
+        private volatile Optional<Object> arrived;
+        private boolean done = false;
+
+        Publication(Flow.Subscriber<? super T> subscriber, int prefetch) {
+            this.subscriber = subscriber;
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            emit();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<Optional<Object>> pulled = waiting;
+            if (pulled != null) pulled.cancel(false);
+            //The pulled item, if already taken, is handed back by emit
+            emit();
+        }
+
+        //Serialized by work: the thread that finds it at zero emits for every caller that arrives meanwhile
+        @SuppressWarnings("unchecked")
+        private void emit() {
+            if (work.getAndIncrement() != 0) return;
+            int missed = 1;
+            do {
+                Optional<Object> item = arrived;
+                if (item != null) {
+                    arrived = null;
+                    if (cancelled) {
+                        item.ifPresent(root::carry);
+                    } else if (item.isEmpty()) finish();
+                    else {
+                        Object value = apply(item.get());
+                        if (value != null) {
+                            subscriber.onNext((T) value);
+                            demand.decrementAndGet();
+                        }
+                    }
+                }
+                while (!cancelled && !done && waiting == null && demand.get() > 0) {
+                    boolean open = drain(buffer, (int) Math.min(demand.get(), prefetch));
+                    if (buffer.isEmpty()) {
+                        if (open) await();
+                        else finish();
+                        break;
+                    }
+                    for (Object ready : buffer) subscriber.onNext((T) ready);
+                    demand.addAndGet(-buffer.size());
+                    buffer.clear();
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        //Nothing ready: one pull waits for the next item instead of a thread
+        private void await() {
+            CompletableFuture<Optional<Object>> pulled = new CompletableFuture<>();
+            waiting = pulled;
+            root.pullers.add(new Puller(root, pulled));
+            root.dispatch();
+            pulled.whenComplete((item, error) -> {
+                if (error != null) return;
+                arrived = item;
+                waiting = null;
+                emit();
+            });
+        }
+
+        private void finish() {
+            if (done) return;
+            done = true;
+            Throwable failure = root.error;
+            if (failure != null) subscriber.onError(failure);
+            else subscriber.onComplete();
+        }
+    }
+
+    private void readOnlyView() {
+        if (root != this) throw new UnsupportedOperationException("A map/filter view of an AsyncQueue is read-only");
+    }
+
+    /**
+     * Take the next item that passes the stages, or CLOSE once the queue is closed and drained
+     */
+    private Object next() throws InterruptedException {
+        if (root == this) return take(-1);
+        while (true) {
+            Object item = root.take(-1);
+            if (item == CLOSE) return CLOSE;
+            item = apply(item);
+            if (item != null) return item;
+        }
+    }
+
+    /**
+     * Like next, waiting at most nanos
+     * @return Object the item, CLOSE, or null on timeout
+     */
+    private Object poll(long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        while (true) {
+            Object item = root.take(Math.max(0, deadline - System.nanoTime()));
+            if (item == null || item == CLOSE) return item;
+            item = apply(item);
+            if (item != null) return item;
+        }
+    }
+
+    /**
+     * Move up to max ready items into buffer without waiting, applying the stages
+     * @return boolean false if the queue turned out closed and drained
+     */
+    private boolean drain(List<Object> buffer, int max) {
+        int from = buffer.size();
+        boolean open = root.drainReady(buffer, max);
+        if (stages.length > 0) {
+            int kept = from;
+            for (int i = from; i < buffer.size(); i++) {
+                Object item = apply(buffer.get(i));
+                if (item != null) buffer.set(kept++, item);
+            }
+            buffer.subList(kept, buffer.size()).clear();
+        }
+        return open;
+    }
+
+    /**
+     * Wait for an item, then fill buffer up to maxSize with the ready ones, lingering up to lingerNanos
+     * while fewer than target arrived
+     * @return int the items that were ready without lingering, -1 once the queue is closed and drained
+     */
+    private int gather(List<Object> buffer, int maxSize, int target, long lingerNanos) throws InterruptedException {
+        Object first = next();
+        if (first == CLOSE) return -1;
+        buffer.add(first);
+        boolean open = maxSize == 1 || drain(buffer, maxSize - 1);
+        int ready = buffer.size();
+        long deadline = System.nanoTime() + lingerNanos;
+        while (open && buffer.size() < target) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) break;
+            Object item = poll(left);
+            if (item == CLOSE) break;
+            if (item != null) {
+                buffer.add(item);
+                open = drain(buffer, maxSize - buffer.size());
+            }
+        }
+        return ready;
+    }
+
+    //Emit batches of up to maxSize items, the linger target doubles while more items than it are ready and halves when it is not reached
+    @SuppressWarnings("unchecked")
+    private void batches(int maxSize, long maxWaitMs, Consumer<List<T>> sink, boolean reuse, Runnable end) {
+        if (maxSize < 1) throw new IllegalArgumentException("Batch size must be positive");
+        long linger = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        Async.async(() -> {
+            try {
+                List<Object> buffer = new ArrayList<>();
+                int target = 1;
+                while (true) {
+                    if (!reuse) buffer = new ArrayList<>(target);
+                    int ready = gather(buffer, maxSize, target, linger);
+                    if (ready < 0) break;
+                    int size = buffer.size();
+                    sink.accept((List<T>) buffer);
+                    if (reuse) buffer.clear();
+                    if (ready > target) target = Math.min(maxSize, target * 2);
+                    else if (size < target) target = Math.max(1, target / 2);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (end != null) end.run();
+            }
+            return null;
+        });
+    }
+
+    private Object apply(Object item) {
+        for (int i = 0; i < stages.length && item != null; i++) item = stages[i].apply(item);
+        return item;
+    }
+
+    //Open windows are ordered by start and end, so the first one is always the next to be emitted
+    @SuppressWarnings("unchecked")
+    private <A, R> AsyncQueue<Window<R>> windows(Windowing kind, long size, long step, long maxCount, Aggregator<T, A, R> aggregator) {
+        if (size < 1 || step < 1 || maxCount < 1) throw new IllegalArgumentException("Window size and step must be positive");
+        AsyncQueue<Window<R>> output = new AsyncQueue<>();
+        Async.async(() -> {
+            Deque<Slot<A>> open = new ArrayDeque<>();
+            long index = 0;
+            long opened = Long.MIN_VALUE;
+            try {
+                while (true) {
+                    Object item;
+                    if (kind == Windowing.COUNT || open.isEmpty()) item = next();
+                    else {
+                        long wait = open.peekFirst().end - System.currentTimeMillis();
+                        item = wait > 0 ? poll(TimeUnit.MILLISECONDS.toNanos(wait)) : null;
+                    }
+                    long now = System.currentTimeMillis();
+                    if (kind != Windowing.COUNT) {
+                        while (!open.isEmpty() && open.peekFirst().end <= now) emit(output, open.pollFirst(), aggregator);
+                    }
+                    if (item == CLOSE) break;
+                    if (item == null) continue;
+                    switch (kind) {
+                        case COUNT -> {
+                            if (index % step == 0) open.addLast(new Slot<>(index, index + size, aggregator.create()));
+                            index++;
+                        }
+                        case TIME -> {
+                            long start = Math.max(Math.floorDiv(now - size, step) * step + step, opened == Long.MIN_VALUE ? Long.MIN_VALUE : opened + step);
+                            for (; start <= now; start += step) {
+                                open.addLast(new Slot<>(start, start + size, aggregator.create()));
+                                opened = start;
+                            }
+                        }
+                        case SESSION -> {
+                            if (open.isEmpty()) open.addLast(new Slot<>(now, now + size, aggregator.create()));
+                            open.peekFirst().end = now + size;
+                        }
+                    }
+                    for (Slot<A> slot : open) {
+                        slot.accumulator = aggregator.add(slot.accumulator, (T) item);
+                        slot.count++;
+                    }
+                    while (!open.isEmpty() && (kind == Windowing.COUNT ? open.peekFirst().end <= index : open.peekFirst().count >= maxCount)) {
+                        emit(output, open.pollFirst(), aggregator);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                for (Slot<A> slot : open) if (slot.count > 0) emit(output, slot, aggregator);
+                output.close();
+            }
+            return null;
+        });
+        return output;
+    }
+
+    private static <A, R> void emit(AsyncQueue<Window<R>> output, Slot<A> slot, Aggregator<?, A, R> aggregator) {
+        output.add(new Window<>(slot.start, slot.end, slot.count, aggregator.result(slot.accumulator)));
+    }
+
+    //Blocks when nanos is negative, null on timeout
+    private Object take(long nanos) throws InterruptedException {
+        Object item;
+        //Counted before looking: a close or a carry either is seen here or sees this consumer
+        takers.incrementAndGet();
+        try {
+            if ((item = carried.poll()) != null) return item;
+            if (closed && queue.isEmpty()) return CLOSE;
+            if (closed && !sealed) seal();
+            item = nanos < 0 ? queue.take() : queue.poll(nanos, TimeUnit.NANOSECONDS);
+        } finally {
+            takers.decrementAndGet();
+        }
+        if (item == null) return null;
+        if (item == CLOSE) {
+            closeTaken();
+            //Carried while this consumer waited, it still comes before the end
+            Object early = carried.poll();
+            return early != null ? early : CLOSE;
+        }
+        if (closed && !sealed) seal();
+        if (!pending.isEmpty()) movePending();
+        return item;
+    }
+
+    private boolean drainReady(List<Object> buffer, int max) {
+        Object early;
+        while (max > 0 && (early = carried.poll()) != null) {
+            buffer.add(early);
+            max--;
+        }
+        int from = buffer.size();
+        queue.drainTo(buffer, max);
+        int last = buffer.size() - 1;
+        boolean open = !(closed && queue.isEmpty());
+        if (last >= from && buffer.get(last) == CLOSE) {
+            buffer.remove(last);
+            closeTaken();
+            open = false;
+        } else if (closed && !sealed) seal();
+        if (!pending.isEmpty()) movePending();
+        return open;
+    }
+
+    //Hand the queued items to the waiting pulls in order, the futures are completed outside the lock
+    private void dispatch() {
+        List<Object[]> handed = null;
+        boolean over = false;
+        synchronized (pullers) {
+            Puller puller;
+            while ((puller = pullers.peek()) != null) {
+                if (puller.future().isDone()) {
+                    pullers.poll();
+                    continue;
+                }
+                Object item = carried.isEmpty() ? queue.poll() : carried.poll();
+                if (item == null && closed && queue.isEmpty()) item = CLOSE;
+                if (item == null) break;
+                if (item == CLOSE) {
+                    closeTaken();
+                    over = true;
+                    break;
+                }
+                if (closed && !sealed) seal();
+                if (!pending.isEmpty()) movePending(false);
+                Object value = puller.view().apply(item);
+                if (value == null) continue;
+                pullers.poll();
+                if (handed == null) handed = new ArrayList<>();
+                handed.add(new Object[] { puller, item, value });
+            }
+        }
+        if (handed != null) {
+            for (Object[] hand : handed) {
+                if (!((Puller) hand[0]).future().complete(Optional.of(hand[2]))) carry(hand[1]);
+            }
+        }
+        if (over) {
+            Puller puller;
+            while ((puller = pullers.poll()) != null) puller.future().complete(Optional.empty());
+        }
+    }
+
+    /**
+     * Pull the next item that passes the stages, keeping the raw item next to the value so it can be carried back
+     * @param current the pull waiting on the storage, to withdraw it
+     * @return CompletableFuture of the raw item and the value, empty once the queue is over
+     */
+    private CompletableFuture<Optional<Object[]>> pullKept(AtomicReference<CompletableFuture<Optional<Object>>> current) {
+        CompletableFuture<Optional<Object>> raw = new CompletableFuture<>();
+        current.set(raw);
+        root.pullers.add(new Puller(root, raw));
+        root.dispatch();
+        return raw.thenCompose(item -> {
+            if (item.isEmpty()) return CompletableFuture.completedFuture(Optional.empty());
+            Object value = apply(item.get());
+            if (value != null) return CompletableFuture.completedFuture(Optional.of(new Object[] { item.get(), value }));
+            //Filtered out: pull again, unless the pull was withdrawn meanwhile
+            return current.get() == raw ? pullKept(current) : CompletableFuture.completedFuture(Optional.empty());
+        });
+    }
+
+    //Cancel a pullKept that is no longer wanted, its item goes back to the queue if it was already taken
+    private void withdraw(AtomicReference<CompletableFuture<Optional<Object>>> current, CompletableFuture<Optional<Object[]>> kept) {
+        CompletableFuture<Optional<Object>> pull = current.getAndSet(null);
+        if (pull != null) pull.cancel(false);
+        kept.thenAccept(item -> item.ifPresent(taken -> root.carry(taken[0])));
+    }
+
+    //An item taken for a pull that was cancelled meanwhile, it goes to the next consumer
+    private void carry(Object item) {
+        synchronized (pullers) {
+            carried.add(item);
+        }
+        dispatch();
+        //A consumer blocked on the storage does not look at carried: the storage is empty while it waits, so the
+        //items go there. A broadcast output cannot take them, its consumers find them on the next take
+        if (takers.get() == 0 || queue instanceof QueueBroadcast.Cursor) return;
+        synchronized (sealLock) {
+            Object early;
+            while (!sealed && (early = carried.poll()) != null) {
+                if (!queue.offer(early)) {
+                    carried.addFirst(early);
+                    return;
+                }
+            }
+        }
+    }
+
+    //sealed turns true only once CLOSE is in, so a consumer that frees space and finds it false always retries.
+    //A consumer about to wait counted itself before checking closed: if it missed the close, the offer retried
+    //after reading takers sees the space that consumer freed
+    private void seal() {
+        synchronized (sealLock) {
+            if (sealed) return;
+            if (queue.offer(CLOSE) || (takers.get() > 0 && queue.offer(CLOSE))) sealed = true;
+        }
+    }
+
+    //CLOSE came out of the storage, so the queue is drained: the spill files are released and CLOSE is put back
+    //for the other consumers
+    private void closeTaken() {
+        if (queue instanceof SpillQueue<?> spill) {
+            try {
+                spill.close();
+            } catch (IOException ignore) {}
+        }
+        reseal();
+    }
+
+    //CLOSE was taken out of the storage, put it back for the other consumers
+    private void reseal() {
+        synchronized (sealLock) {
+            sealed = false;
+            seal();
+        }
+    }
+
+    //Move the items waiting in addAsync into the free space, in order
+    private void movePending() {
+        movePending(true);
+    }
+
+    private void movePending(boolean wake) {
+        List<Pending> moved = null;
+        synchronized (pending) {
+            Pending head;
+            while (!closed && (head = pending.peek()) != null && queue.offer(head.item())) {
+                pending.poll();
+                if (moved == null) moved = new ArrayList<>();
+                moved.add(head);
+            }
+        }
+        if (moved != null) for (Pending done : moved) done.done().complete(true);
+        if (wake && moved != null && !pullers.isEmpty()) dispatch();
+    }
+
+    private void dropPending() {
+        Pending dropped;
+        while ((dropped = pending.poll()) != null) dropped.done().complete(false);
     }
-}
\ No newline at end of file
+}
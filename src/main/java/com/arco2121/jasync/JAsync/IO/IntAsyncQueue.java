@@ -0,0 +1,324 @@
+package com.arco2121.jasync.JAsync.IO;
+
+import com.arco2121.jasync.JAsync.Async;
+import com.arco2121.jasync.JAsync.Running.Asyncable;
+import com.arco2121.jasync.Types.Interfaces.AsyncCollection;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * AsyncQueue of int values kept unboxed in a ring buffer, consumers take them in chunks.
+ * map and filter are fused views like in AsyncQueue
+ */
+public final class IntAsyncQueue implements AsyncCollection {
+
+    private static final int CHUNK = 256;
+    private static final Object[] NO_STAGES = new Object[0];
+
+    private final IntAsyncQueue root;
+    //IntUnaryOperator or IntPredicate, applied to whole chunks
+    private final Object[] stages;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final int capacity;
+    private int[] ring;
+    private int head = 0;
+    private int count = 0;
+    private volatile boolean closed = false;
+    private final List<Runnable> closeListeners = new ArrayList<>();
+
+    public IntAsyncQueue() {
+        this(Integer.MAX_VALUE);
+    }
+    /**
+     * Bounded queue, add waits for space when it is full
+     * @param capacity
+     */
+    public IntAsyncQueue(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        this.root = this;
+        this.stages = NO_STAGES;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.capacity = capacity;
+        this.ring = new int[Math.min(capacity, 16)];
+    }
+    private IntAsyncQueue(IntAsyncQueue root, Object[] stages) {
+        this.root = root;
+        this.stages = stages;
+        this.lock = null;
+        this.notEmpty = null;
+        this.notFull = null;
+        this.capacity = root.capacity;
+    }
+
+    public void add(int value) {
+        readOnlyView();
+        lock.lock();
+        try {
+            if (closed) return;
+            while (count == ring.length && !grow()) {
+                notFull.awaitUninterruptibly();
+                if (closed) return;
+            }
+            ring[(head + count) % ring.length] = value;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add the values in order, taking the lock once per free run of the ring instead of once per value
+     * @param values
+     */
+    public void addAll(int... values) {
+        readOnlyView();
+        int from = 0;
+        lock.lock();
+        try {
+            while (from < values.length && !closed) {
+                while (count == ring.length && !grow()) {
+                    notFull.awaitUninterruptibly();
+                    if (closed) return;
+                }
+                int tail = (head + count) % ring.length;
+                int n = Math.min(values.length - from, Math.min(ring.length - count, ring.length - tail));
+                System.arraycopy(values, from, ring, tail, n);
+                from += n;
+                count += n;
+                notEmpty.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the queue, on a map/filter view it closes the queue the view reads from
+     */
+    public void close() {
+        if (root != this) {
+            root.close();
+            return;
+        }
+        List<Runnable> listeners;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            listeners = new ArrayList<>(closeListeners);
+            closeListeners.clear();
+        } finally {
+            lock.unlock();
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    public void onClose(Runnable callback) {
+        if (root != this) {
+            root.onClose(callback);
+            return;
+        }
+        lock.lock();
+        try {
+            if (!closed) {
+                closeListeners.add(callback);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        callback.run();
+    }
+
+    public IntAsyncQueue map(IntUnaryOperator mapper) {
+        return fuse(mapper);
+    }
+
+    public IntAsyncQueue filter(IntPredicate condition) {
+        return fuse(condition);
+    }
+
+    private IntAsyncQueue fuse(Object stage) {
+        Object[] fused = Arrays.copyOf(stages, stages.length + 1);
+        fused[stages.length] = stage;
+        return new IntAsyncQueue(root, fused);
+    }
+
+    public void forEach(IntConsumer action) {
+        Async.async(() -> {
+            int[] chunk = new int[CHUNK];
+            int n;
+            while ((n = next(chunk)) >= 0) {
+                for (int i = 0; i < n; i++) action.accept(chunk[i]);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Like forEach, with the values handed over in chunks: the array is reused, only its first n values are valid
+     * @param action receives the chunk and n
+     * @return Asyncable completed when the queue is closed and drained
+     */
+    public Asyncable<Void> forEachChunk(BiConsumer<int[], Integer> action) {
+        return Async.async(() -> {
+            int[] chunk = new int[CHUNK];
+            int n;
+            while ((n = next(chunk)) >= 0) action.accept(chunk, n);
+            return null;
+        });
+    }
+
+    /**
+     * @return Asyncableintarray with every value, completed when the queue is closed and drained
+     */
+    public Asyncable<int[]> awaitToArray() {
+        return Async.async(() -> {
+            int[] values = new int[CHUNK];
+            int size = 0;
+            int n;
+            while (true) {
+                if (values.length - size < CHUNK) values = Arrays.copyOf(values, values.length * 2);
+                if ((n = next(values, size)) < 0) break;
+                size += n;
+            }
+            return Arrays.copyOf(values, size);
+        });
+    }
+
+    @Override
+    public Asyncable<?> awaitToArray(Function<Integer, ?> generator) {
+        return awaitToArray().then(values -> {
+            Integer[] boxed = (Integer[]) generator.apply(values.length);
+            for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+            return boxed;
+        });
+    }
+
+    @Override
+    public Asyncable<List<?>> awaitToList() {
+        return awaitToArray().then(values -> Arrays.stream(values).boxed().toList());
+    }
+
+    /**
+     * Snapshot of the values queued now, after the map/filter stages
+     * @return PrimitiveIterator.OfInt
+     */
+    @Override
+    public PrimitiveIterator.OfInt asyncIterator() {
+        int[] snapshot;
+        root.lock.lock();
+        try {
+            snapshot = new int[root.count];
+            for (int i = 0; i < snapshot.length; i++) snapshot[i] = root.ring[(root.head + i) % root.ring.length];
+        } finally {
+            root.lock.unlock();
+        }
+        return Arrays.stream(snapshot, 0, apply(snapshot, 0, snapshot.length)).iterator();
+    }
+
+    public boolean isEmpty() {
+        return partialSize() == 0;
+    }
+
+    public int partialSize() {
+        root.lock.lock();
+        try {
+            return root.count;
+        } finally {
+            root.lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isClosed() {
+        return root.closed;
+    }
+
+    //Internal
+    private void readOnlyView() {
+        if (root != this) throw new UnsupportedOperationException("A map/filter view of a IntAsyncQueue is read-only");
+    }
+
+    private int next(int[] buffer) throws InterruptedException {
+        return next(buffer, 0);
+    }
+
+    /**
+     * Wait for values and move up to a chunk of them into buffer from offset, after the stages
+     * @return int the values moved, -1 once the queue is closed and drained
+     */
+    private int next(int[] buffer, int offset) throws InterruptedException {
+        int max = Math.min(CHUNK, buffer.length - offset);
+        while (true) {
+            int n = root.take(buffer, offset, max);
+            if (n < 0) return -1;
+            n = apply(buffer, offset, n);
+            if (n > 0) return n;
+        }
+    }
+
+    private int take(int[] buffer, int offset, int max) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (closed) return -1;
+                notEmpty.await();
+            }
+            int n = Math.min(max, count);
+            int first = Math.min(n, ring.length - head);
+            System.arraycopy(ring, head, buffer, offset, first);
+            System.arraycopy(ring, 0, buffer, offset + first, n - first);
+            head = (head + n) % ring.length;
+            count -= n;
+            notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Run the stages over buffer[offset, offset + n) in place, compacting the filtered values out
+    private int apply(int[] buffer, int offset, int n) {
+        for (Object stage : stages) {
+            if (stage instanceof IntUnaryOperator mapper) {
+                for (int i = offset; i < offset + n; i++) buffer[i] = mapper.applyAsInt(buffer[i]);
+            } else {
+                IntPredicate condition = (IntPredicate) stage;
+                int kept = offset;
+                for (int i = offset; i < offset + n; i++) if (condition.test(buffer[i])) buffer[kept++] = buffer[i];
+                n = kept - offset;
+            }
+        }
+        return n;
+    }
+
+    //Called holding the lock, unbounded queues double the ring when it is full
+    private boolean grow() {
+        if (ring.length >= capacity) return false;
+        int[] larger = new int[(int) Math.min(capacity, ring.length * 2L)];
+        int first = Math.min(count, ring.length - head);
+        System.arraycopy(ring, head, larger, 0, first);
+        System.arraycopy(ring, 0, larger, first, count - first);
+        ring = larger;
+        head = 0;
+        return true;
+    }
+}
@@ -0,0 +1,269 @@
+package com.arco2121.jasync.JAsync.IO;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared buffer behind AsyncQueue.broadcast: the items are written once in linked chunks and every output reads
+ * them through its own Cursor. A chunk is collected when the slowest cursor has left it, and the writer waits
+ * while it is capacity items ahead of the slowest cursor
+ */
+final class QueueBroadcast {
+
+    private static final int CHUNK = 256;
+
+    private static final class Chunk {
+        final Object[] items = new Object[CHUNK];
+        volatile Chunk next;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+    private final Object close;
+    private final int capacity;
+    private Runnable wake = () -> {};
+    private Chunk tail = new Chunk();
+    private volatile long written = 0;
+    private volatile CompletableFuture<Boolean> space;
+    private Object waiting;
+    private volatile boolean finished = false;
+
+    /**
+     * @param outputs
+     * @param capacity maximum distance between the writer and the slowest cursor
+     * @param close the item that closes a cursor
+     */
+    QueueBroadcast(int outputs, int capacity, Object close) {
+        this.capacity = capacity;
+        this.close = close;
+        for (int i = 0; i < outputs; i++) cursors.add(new Cursor(tail));
+    }
+
+    List<Cursor> cursors() {
+        return List.copyOf(cursors);
+    }
+
+    /**
+     * Called after every write, to hand the items to the pulls of the outputs
+     * @param wake
+     */
+    void onWrite(Runnable wake) {
+        this.wake = wake;
+    }
+
+    /**
+     * Write an item for every cursor
+     * @param item
+     * @return CompletableFutureBoolean completed when written, false once every cursor is closed
+     */
+    CompletableFuture<Boolean> offer(Object item) {
+        lock.lock();
+        try {
+            if (cursors.isEmpty()) return CompletableFuture.completedFuture(false);
+            if (written - slowest() >= capacity) {
+                waiting = item;
+                space = new CompletableFuture<>();
+                return space;
+            }
+            append(item);
+        } finally {
+            lock.unlock();
+        }
+        wake.run();
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * No more writes: the cursors closed from now on still read what was written
+     */
+    void finish() {
+        finished = true;
+    }
+
+    //Called holding the lock
+    private void append(Object item) {
+        int offset = (int) (written % CHUNK);
+        tail.items[offset] = item;
+        if (offset == CHUNK - 1) {
+            Chunk next = new Chunk();
+            tail.next = next;
+            tail = next;
+        }
+        written = written + 1;
+        appended.signalAll();
+    }
+
+    private long slowest() {
+        long min = written;
+        for (Cursor cursor : cursors) min = Math.min(min, cursor.position);
+        return min;
+    }
+
+    //A cursor moved or left, the waiting write may fit now
+    private void advanced() {
+        if (space == null) return;
+        CompletableFuture<Boolean> freed = null;
+        lock.lock();
+        try {
+            if (space != null && (cursors.isEmpty() || written - slowest() < capacity)) {
+                freed = space;
+                space = null;
+                if (!cursors.isEmpty()) append(waiting);
+                waiting = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (freed != null) {
+            wake.run();
+            freed.complete(!cursors.isEmpty());
+        }
+    }
+
+    /**
+     * Storage of a broadcast output, read-only except for the close item
+     */
+    final class Cursor extends AbstractQueue<Object> implements BlockingQueue<Object> {
+
+        private Chunk chunk;
+        private volatile long position = 0;
+        private volatile boolean closed = false;
+
+        private Cursor(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean offer(Object item) {
+            if (item != close) throw new UnsupportedOperationException("A broadcast output is read-only");
+            //Closed before the end of the broadcast the output is detached: what it did not read is skipped, and
+            //it neither pins the chunks nor holds the writer back
+            if (!finished) {
+                synchronized (this) {
+                    chunk = null;
+                }
+            }
+            lock.lock();
+            try {
+                if (closed) return true;
+                closed = true;
+                appended.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            cursors.remove(this);
+            advanced();
+            return true;
+        }
+
+        @Override
+        public synchronized Object poll() {
+            if (chunk == null) return close;
+            if (position < written) {
+                int offset = (int) (position % CHUNK);
+                Object item = chunk.items[offset];
+                if (offset == CHUNK - 1) chunk = chunk.next;
+                position = position + 1;
+                advanced();
+                return item;
+            }
+            if (!closed) return null;
+            //Everything read, the last chunk can go
+            chunk = null;
+            return close;
+        }
+
+        @Override
+        public synchronized Object peek() {
+            if (chunk == null) return close;
+            if (position < written) return chunk.items[(int) (position % CHUNK)];
+            return closed ? close : null;
+        }
+
+        @Override
+        public synchronized int size() {
+            return chunk == null ? 0 : (int) Math.min(Integer.MAX_VALUE, written - position);
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            List<Object> snapshot = new ArrayList<>();
+            synchronized (this) {
+                Chunk current = chunk;
+                for (long at = position; current != null && at < written; at++) {
+                    int offset = (int) (at % CHUNK);
+                    snapshot.add(current.items[offset]);
+                    if (offset == CHUNK - 1) current = current.next;
+                }
+            }
+            return snapshot.iterator();
+        }
+
+        @Override
+        public void put(Object item) {
+            offer(item);
+        }
+
+        @Override
+        public boolean offer(Object item, long timeout, TimeUnit unit) {
+            return offer(item);
+        }
+
+        @Override
+        public Object take() throws InterruptedException {
+            while (true) {
+                Object item = poll();
+                if (item != null) return item;
+                lock.lockInterruptibly();
+                try {
+                    while (position >= written && !closed && chunk != null) appended.await();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            while (true) {
+                Object item = poll();
+                if (item != null || nanos <= 0) return item;
+                lock.lockInterruptibly();
+                try {
+                    while (position >= written && !closed && chunk != null && nanos > 0) nanos = appended.awaitNanos(nanos);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return 0;
+        }
+
+        @Override
+        public int drainTo(Collection<? super Object> target) {
+            return drainTo(target, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized int drainTo(Collection<? super Object> target, int maxElements) {
+            int n = 0;
+            Object item;
+            while (n < maxElements && (item = poll()) != null) {
+                target.add(item);
+                n++;
+                if (item == close) break;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of the registered ThreadLocals, captured when a task is submitted
+ * and restored around its execution on whatever thread runs it
+ */
+public final class AsyncContext {
+
+    private static final ThreadLocal<?>[] NO_KEYS = new ThreadLocal<?>[0];
+    private static final AsyncContext EMPTY = new AsyncContext(NO_KEYS, new Object[0]);
+    private static volatile ThreadLocal<?>[] KEYS = NO_KEYS;
+
+    private final ThreadLocal<?>[] keys;
+    private final Object[] values;
+
+    private AsyncContext(ThreadLocal<?>[] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Register a ThreadLocal to be propagated across async boundaries
+     * @param key
+     */
+    public static synchronized void register(ThreadLocal<?> key) {
+        ThreadLocal<?>[] current = KEYS;
+        for (ThreadLocal<?> k : current) if (k == key) return;
+        ThreadLocal<?>[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = key;
+        KEYS = next;
+    }
+
+    /**
+     * Create and register a new propagated key
+     * @return ThreadLocalT
+     * @param <T>
+     */
+    public static <T> ThreadLocal<T> key() {
+        ThreadLocal<T> key = new ThreadLocal<>();
+        register(key);
+        return key;
+    }
+
+    /**
+     * Stop propagating a ThreadLocal
+     * @param key
+     */
+    public static synchronized void unregister(ThreadLocal<?> key) {
+        ThreadLocal<?>[] current = KEYS;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != key) continue;
+            ThreadLocal<?>[] next = new ThreadLocal<?>[current.length - 1];
+            System.arraycopy(current, 0, next, 0, i);
+            System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+            KEYS = next.length == 0 ? NO_KEYS : next;
+            return;
+        }
+    }
+
+    /**
+     * Snapshot the registered ThreadLocals of the calling thread
+     * @return AsyncContext
+     */
+    public static AsyncContext capture() {
+        ThreadLocal<?>[] keys = KEYS;
+        if (keys.length == 0) return EMPTY;
+        Object[] values = new Object[keys.length];
+        boolean any = false;
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = keys[i].get();
+            any |= values[i] != null;
+        }
+        return any ? new AsyncContext(keys, values) : EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(ThreadLocal<T> key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) return (T) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Run a task with this snapshot installed, the previous values are restored afterwards
+     * @param task
+     * @return T
+     * @param <T>
+     * @throws Exception
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        if (this == EMPTY) return task.call();
+        Object[] previous = install();
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void run(Runnable task) {
+        if (this == EMPTY) {
+            task.run();
+            return;
+        }
+        Object[] previous = install();
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object[] install() {
+        Object[] previous = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ThreadLocal<Object> key = (ThreadLocal<Object>) keys[i];
+            previous[i] = key.get();
+            set(key, values[i]);
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void restore(Object[] previous) {
+        for (int i = 0; i < keys.length; i++) {
+            set((ThreadLocal<Object>) keys[i], previous[i]);
+        }
+    }
+
+    private static void set(ThreadLocal<Object> key, Object value) {
+        if (value == null) key.remove();
+        else key.set(value);
+    }
+
+    /**
+     * Bind the current context to a task, no wrapper is allocated when nothing has to be propagated
+     * @param task
+     * @return CallableT
+     * @param <T>
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        AsyncContext context = capture();
+        return context == EMPTY ? task : () -> context.call(task);
+    }
+    public static Runnable wrap(Runnable task) {
+        AsyncContext context = capture();
+        return context == EMPTY ? task : () -> context.run(task);
+    }
+    /**
+     * Named apart from wrap so that implicit lambdas are not ambiguous between Function and Consumer
+     * @param task
+     * @return FunctionTR
+     */
+    public static <T, R> Function<T, R> wrapFunction(Function<T, R> task) {
+        AsyncContext context = capture();
+        if (context == EMPTY) return task;
+        return value -> {
+            Object[] previous = context.install();
+            try {
+                return task.apply(value);
+            } finally {
+                context.restore(previous);
+            }
+        };
+    }
+    public static <T> Consumer<T> wrapConsumer(Consumer<T> task) {
+        AsyncContext context = capture();
+        if (context == EMPTY) return task;
+        return value -> {
+            Object[] previous = context.install();
+            try {
+                task.accept(value);
+            } finally {
+                context.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,333 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import com.arco2121.jasync.JAsync.Async;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder of a graph of dependent steps, executed with every ready step running in parallel
+ * and the steps on the longest remaining path dispatched first
+ */
+public final class AsyncGraph {
+
+    public enum Policy {
+        FAIL_FAST, SKIP_DEPENDENTS, CONTINUE
+    }
+
+    public enum Status {
+        DONE, FAILED, SKIPPED, CANCELLED
+    }
+
+    /**
+     * A step of the graph, receives the results of its dependencies by name
+     */
+    @FunctionalInterface
+    public interface Step {
+        Object run(Map<String, Object> inputs) throws Exception;
+    }
+
+    /**
+     * Execution report of a single step, times are relative to the start of the graph
+     */
+    public record Timing(String node, Status status, long startMillis, long endMillis) {
+        public long durationMillis() {
+            return endMillis - startMillis;
+        }
+    }
+
+    private static final class Node {
+        final String name;
+        final Step step;
+        final long cost;
+        final Set<String> deps = new LinkedHashSet<>();
+        final Set<String> dependents = new LinkedHashSet<>();
+
+        Node(String name, Step step, long cost) {
+            this.name = name;
+            this.step = step;
+            this.cost = cost;
+        }
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private Policy policy = Policy.FAIL_FAST;
+    private int parallelism = Integer.MAX_VALUE;
+
+    //Builder
+    public AsyncGraph node(String name, Step step) {
+        return node(name, 1, step);
+    }
+    public AsyncGraph node(String name, Callable<?> task) {
+        return node(name, 1, inputs -> task.call());
+    }
+    /**
+     * Declare a step
+     * @param name
+     * @param estimatedCost relative cost used to find the critical path before running
+     * @param step
+     * @return AsyncGraph
+     */
+    public AsyncGraph node(String name, long estimatedCost, Step step) {
+        if (nodes.containsKey(name)) throw new IllegalArgumentException("Duplicated node: " + name);
+        nodes.put(name, new Node(name, step, Math.max(1, estimatedCost)));
+        return this;
+    }
+
+    /**
+     * Declare that "to" needs the result of "from"
+     * @param from
+     * @param to
+     * @return AsyncGraph
+     */
+    public AsyncGraph edge(String from, String to) {
+        Node source = require(from);
+        Node target = require(to);
+        target.deps.add(source.name);
+        source.dependents.add(target.name);
+        return this;
+    }
+    public AsyncGraph dependsOn(String node, String... dependencies) {
+        for (String dependency : dependencies) edge(dependency, node);
+        return this;
+    }
+
+    public AsyncGraph policy(Policy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    /**
+     * Limit the steps running at the same time, by default every ready step is dispatched
+     * @param parallelism
+     * @return AsyncGraph
+     */
+    public AsyncGraph parallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    private Node require(String name) {
+        Node node = nodes.get(name);
+        if (node == null) throw new IllegalArgumentException("Unknown node: " + name);
+        return node;
+    }
+
+    //Execution
+    /**
+     * Run the graph on the async backend
+     * @return AsyncableResult completed when every step has finished, failed, or been skipped
+     */
+    public Asyncable<Result> run() {
+        return new Execution(prioritize()).start();
+    }
+
+    /**
+     * Critical path priorities, computed for each run so that executions never share them
+     * @return MapStringLong the cost of each node plus the longest chain of dependents after it
+     */
+    private Map<String, Long> prioritize() {
+        Map<String, Long> priorities = new HashMap<>();
+        Map<String, Integer> pending = new HashMap<>();
+        Deque<Node> leaves = new ArrayDeque<>();
+        for (Node node : nodes.values()) {
+            pending.put(node.name, node.dependents.size());
+            if (node.dependents.isEmpty()) leaves.add(node);
+        }
+        int visited = 0;
+        while (!leaves.isEmpty()) {
+            Node node = leaves.poll();
+            visited++;
+            long longest = 0;
+            for (String dependent : node.dependents) longest = Math.max(longest, priorities.get(dependent));
+            priorities.put(node.name, node.cost + longest);
+            for (String dep : node.deps) {
+                if (pending.merge(dep, -1, Integer::sum) == 0) leaves.add(nodes.get(dep));
+            }
+        }
+        if (visited != nodes.size()) throw new IllegalStateException("AsyncGraph contains a cycle");
+        return priorities;
+    }
+
+    private final class Execution {
+
+        private final long origin = System.nanoTime();
+        private final Map<String, Integer> waiting = new HashMap<>();
+        private final PriorityQueue<Node> ready;
+        private final Map<String, Object> values = new HashMap<>();
+        private final Map<String, Throwable> errors = new LinkedHashMap<>();
+        private final Map<String, Timing> timings = new LinkedHashMap<>();
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+        private int running = 0;
+        private int finished = 0;
+        private boolean aborted = false;
+
+        Execution(Map<String, Long> priorities) {
+            this.ready = new PriorityQueue<>(Comparator.comparingLong((Node n) -> priorities.getOrDefault(n.name, 0L)).reversed());
+        }
+
+        Asyncable<Result> start() {
+            synchronized (this) {
+                for (Node node : nodes.values()) {
+                    waiting.put(node.name, node.deps.size());
+                    if (node.deps.isEmpty()) ready.add(node);
+                }
+                dispatch();
+            }
+            return new Asyncable<>(result);
+        }
+
+        private long now() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+        }
+
+        //Called holding the lock
+        private void dispatch() {
+            while (!ready.isEmpty() && running < parallelism) {
+                Node node = ready.poll();
+                if (aborted) {
+                    finish(node, Status.CANCELLED, now(), null, null);
+                    continue;
+                }
+                if (policy == Policy.SKIP_DEPENDENTS && hasBrokenDependency(node)) {
+                    finish(node, Status.SKIPPED, now(), null, null);
+                    continue;
+                }
+                Map<String, Object> inputs = new HashMap<>();
+                for (String dep : node.deps) inputs.put(dep, values.get(dep));
+                Map<String, Object> view = Collections.unmodifiableMap(inputs);
+                running++;
+                long[] start = new long[1];
+                Async.async(() -> {
+                    start[0] = now();
+                    return node.step.run(view);
+                }).getDelegate().whenComplete((value, error) -> {
+                    synchronized (this) {
+                        running--;
+                        if (error == null) finish(node, Status.DONE, start[0], value, null);
+                        else {
+                            Throwable cause = error.getCause() != null ? error.getCause() : error;
+                            if (policy == Policy.FAIL_FAST) aborted = true;
+                            finish(node, Status.FAILED, start[0], null, cause);
+                        }
+                        dispatch();
+                    }
+                });
+            }
+            if (finished == nodes.size() && !result.isDone()) {
+                result.complete(new Result(values, errors, timings, now(), nodes));
+            }
+        }
+
+        private boolean hasBrokenDependency(Node node) {
+            for (String dep : node.deps) {
+                Timing timing = timings.get(dep);
+                if (timing != null && timing.status() != Status.DONE) return true;
+            }
+            return false;
+        }
+
+        private void finish(Node node, Status status, long start, Object value, Throwable error) {
+            finished++;
+            timings.put(node.name, new Timing(node.name, status, start, now()));
+            if (status == Status.DONE) values.put(node.name, value);
+            if (error != null) errors.put(node.name, error);
+            for (String dependent : node.dependents) {
+                if (waiting.merge(dependent, -1, Integer::sum) == 0) ready.add(nodes.get(dependent));
+            }
+        }
+    }
+
+    /**
+     * Outcome of a graph execution
+     */
+    public static final class Result {
+
+        private final Map<String, Object> values;
+        private final Map<String, Throwable> errors;
+        private final Map<String, Timing> timings;
+        private final long totalMillis;
+        private final Map<String, Node> nodes;
+
+        private Result(Map<String, Object> values, Map<String, Throwable> errors, Map<String, Timing> timings, long totalMillis, Map<String, Node> nodes) {
+            this.values = Collections.unmodifiableMap(values);
+            this.errors = Collections.unmodifiableMap(errors);
+            this.timings = Collections.unmodifiableMap(timings);
+            this.totalMillis = totalMillis;
+            this.nodes = nodes;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(String node) {
+            return (T) values.get(node);
+        }
+
+        public Map<String, Object> values() { return values; }
+
+        public Map<String, Throwable> errors() { return errors; }
+
+        public Map<String, Timing> timings() { return timings; }
+
+        public long totalMillis() { return totalMillis; }
+
+        public boolean isSuccessful() {
+            for (Timing timing : timings.values()) if (timing.status() != Status.DONE) return false;
+            return true;
+        }
+
+        public Status status(String node) {
+            Timing timing = timings.get(node);
+            return timing == null ? null : timing.status();
+        }
+
+        /**
+         * The chain of steps that bounded the total latency, following back from the last executed step
+         * the dependency that finished last
+         * @return List of node names, from the first step to the last
+         */
+        public List<String> criticalPath() {
+            LinkedList<String> path = new LinkedList<>();
+            Timing current = null;
+            for (Timing timing : timings.values()) {
+                if (timing.status() == Status.SKIPPED || timing.status() == Status.CANCELLED) continue;
+                if (current == null || timing.endMillis() >= current.endMillis()) current = timing;
+            }
+            while (current != null) {
+                path.addFirst(current.node());
+                Timing previous = null;
+                for (String dep : nodes.get(current.node()).deps) {
+                    Timing timing = timings.get(dep);
+                    if (previous == null || timing.endMillis() >= previous.endMillis()) previous = timing;
+                }
+                current = previous;
+            }
+            return path;
+        }
+
+        /**
+         * Human readable per step timing, the critical path is marked with *
+         * @return String
+         */
+        public String report() {
+            Set<String> critical = new HashSet<>(criticalPath());
+            StringBuilder sb = new StringBuilder("AsyncGraph ").append(totalMillis).append("ms\n");
+            List<Timing> ordered = new ArrayList<>(timings.values());
+            ordered.sort(Comparator.comparingLong(Timing::startMillis));
+            for (Timing timing : ordered) {
+                sb.append(critical.contains(timing.node()) ? " * " : "   ")
+                        .append(timing.node()).append(' ').append(timing.status())
+                        .append(" +").append(timing.startMillis()).append("ms ")
+                        .append(timing.durationMillis()).append("ms\n");
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return report();
+        }
+    }
+}
@@ -2,49 +2,202 @@ package com.arco2121.jasync.JAsync.Running;
 
 import com.arco2121.jasync.JAsync.Async;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Repeating task, ticks are timed by the shared Async scheduler and the task runs on the async backend
+ */
 public final class AsyncInterval {
 
+    public enum Mode {
+        FIXED_RATE, FIXED_DELAY
+    }
+
+    /**
+     * What to do when a tick comes while the task is still running
+     */
+    public enum Overrun {
+        SKIP, QUEUE_ONE, CONCURRENT
+    }
+
+    /**
+     * Execution statistics, times are epoch milliseconds
+     */
+    public record Stats(int intervalId, long runs, long lastRunAt, double averageMillis, long maxMillis, long overruns, long nextFireAt) {}
+
     private static final AtomicInteger integer = new AtomicInteger(0);
     private final int intervalId;
+    private final Runnable task;
+    private final Mode mode;
+    private final Set<FutureTask<Void>> inFlight = ConcurrentHashMap.newKeySet();
     private volatile boolean running;
-    private final Thread runner;
+    private ScheduledFuture<?> timer;
+    private long generation = 0;
+    private long nextFire;
+    private long plannedFire;
+    private Overrun overrun = Overrun.SKIP;
+    private int maxConcurrent = 1;
+    private int jitter = 0;
+    private int active = 0;
+    private boolean queued = false;
+    private long runs = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+    private long overruns = 0;
+    private long lastRunAt = 0;
     public int delay;
 
     public AsyncInterval(Runnable task, int delay) {
+        this(task, delay, Mode.FIXED_RATE);
+    }
+    /**
+     * @param task
+     * @param delay period in milliseconds
+     * @param mode FIXED_RATE keeps ticks on the period grid whatever the task duration, FIXED_DELAY waits delay after each run
+     */
+    public AsyncInterval(Runnable task, int delay, Mode mode) {
         this.intervalId = integer.incrementAndGet();
         this.running = false;
         this.delay = delay;
-        this.runner = new Thread(() -> {
-            while (running) {
-                try {
-                    Async.timeout(task, this.delay);
-                } catch (InterruptedException e) {
-                    running = false;
-                    interrupt();
-                }
-            }
-        });
+        this.task = task;
+        this.mode = mode;
     }
 
-    public void start() {
+    /**
+     * Choose what happens on a tick that comes while the task is running
+     * @param overrun
+     * @param maxConcurrent the runs allowed at the same time with CONCURRENT
+     * @return AsyncInterval
+     */
+    public synchronized AsyncInterval overrun(Overrun overrun, int maxConcurrent) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be positive");
+        this.overrun = overrun;
+        this.maxConcurrent = overrun == Overrun.CONCURRENT ? maxConcurrent : 1;
+        return this;
+    }
+    public AsyncInterval overrun(Overrun overrun) {
+        return overrun(overrun, 1);
+    }
+
+    /**
+     * Delay every tick by a random amount, spreading the intervals with the same period
+     * @param jitter maximum delay in milliseconds
+     * @return AsyncInterval
+     */
+    public synchronized AsyncInterval jitter(int jitter) {
+        this.jitter = Math.max(0, jitter);
+        return this;
+    }
+
+    public synchronized void start() {
         if(!running) {
             running = true;
-            runner.start();
+            generation++;
+            nextFire = System.nanoTime();
+            schedule();
         }
     }
 
-    public void stop() {
-        if(running) running = false;
+    public synchronized void stop() {
+        if(running) {
+            running = false;
+            queued = false;
+            if (timer != null) timer.cancel(false);
+        }
     }
 
-    public void interrupt() {
+    public synchronized void interrupt() {
         if(running) {
-            running = false;
-            this.runner.interrupt();
+            stop();
+            //Cancelling the run interrupts its thread only while the task is on it, never a pool thread gone back to other work
+            for (FutureTask<Void> run : inFlight) run.cancel(true);
         }
     }
 
+    //Called holding the lock
+    private void schedule() {
+        long period = TimeUnit.MILLISECONDS.toNanos(Math.max(1, delay));
+        long now = System.nanoTime();
+        if (mode == Mode.FIXED_DELAY) nextFire = now + period;
+        else {
+            nextFire += period;
+            if (nextFire - now < 0) nextFire += ((now - nextFire) / period + 1) * period;
+        }
+        plannedFire = nextFire;
+        if (jitter > 0) plannedFire += TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextInt(jitter + 1));
+        long armed = generation;
+        timer = Async.schedule(() -> tick(armed), plannedFire - now, TimeUnit.NANOSECONDS);
+    }
+
+    //A tick or run of a generation before the last start must not arm a second timer
+    private void tick(long armed) {
+        synchronized (this) {
+            if (!running || armed != generation) return;
+            if (mode == Mode.FIXED_RATE) schedule();
+            if (active > 0) {
+                overruns++;
+                if (overrun == Overrun.QUEUE_ONE) queued = true;
+                if (overrun != Overrun.CONCURRENT || active >= maxConcurrent) return;
+            }
+            active++;
+        }
+        dispatch(armed);
+    }
+
+    private void dispatch(long armed) {
+        FutureTask<Void> run = new FutureTask<>(task, null);
+        inFlight.add(run);
+        Async.async(() -> {
+            long begin = System.nanoTime();
+            try {
+                run.run();
+            } finally {
+                inFlight.remove(run);
+                boolean again;
+                synchronized (this) {
+                    long took = System.nanoTime() - begin;
+                    runs++;
+                    totalNanos += took;
+                    maxNanos = Math.max(maxNanos, took);
+                    lastRunAt = System.currentTimeMillis();
+                    again = queued && running && armed == generation;
+                    queued = false;
+                    if (!again) {
+                        active--;
+                        if (mode == Mode.FIXED_DELAY && running && armed == generation && active == 0) schedule();
+                    }
+                }
+                if (again) dispatch(armed);
+            }
+        });
+    }
+
     public int getIntervalId() { return this.intervalId; }
+
+    public Mode getMode() { return this.mode; }
+
+    public synchronized Overrun getOverrun() { return this.overrun; }
+
+    public boolean isRunning() { return this.running; }
+
+    /**
+     * Time left before the next tick
+     * @return long milliseconds, -1 if the interval is not running
+     */
+    public synchronized long nextFireIn() {
+        if (!running) return -1;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(plannedFire - System.nanoTime()));
+    }
+
+    public synchronized Stats stats() {
+        long next = running ? System.currentTimeMillis() + nextFireIn() : -1;
+        double average = runs == 0 ? 0 : (double) totalNanos / runs / 1_000_000;
+        return new Stats(intervalId, runs, lastRunAt, average, TimeUnit.NANOSECONDS.toMillis(maxNanos), overruns, next);
+    }
 }
@@ -0,0 +1,42 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Count down latch whose await is an Asyncable instead of a blocked thread
+ */
+public final class AsyncLatch {
+
+    private final AtomicInteger count;
+    private final CompletableFuture<Void> opened = new CompletableFuture<>();
+
+    public AsyncLatch(int count) {
+        if (count < 0) throw new IllegalArgumentException("Count cannot be negative");
+        this.count = new AtomicInteger(count);
+        if (count == 0) opened.complete(null);
+    }
+
+    public void countDown() {
+        while (true) {
+            int current = count.get();
+            if (current == 0) return;
+            if (count.compareAndSet(current, current - 1)) {
+                if (current == 1) opened.complete(null);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wait for the count to reach zero
+     * @return AsyncableVoid
+     */
+    public Asyncable<Void> await() {
+        return new Asyncable<>(opened.thenApply(v -> v));
+    }
+
+    public int getCount() {
+        return count.get();
+    }
+}
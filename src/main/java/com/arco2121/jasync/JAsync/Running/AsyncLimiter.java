@@ -0,0 +1,182 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import com.arco2121.jasync.JAsync.Async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Handle that collapses bursts of events into few executions of a function
+ * @param <T>
+ */
+public final class AsyncLimiter<T> implements Consumer<T>, Runnable {
+
+    public enum Mode {
+        DEBOUNCE, THROTTLE, COALESCE
+    }
+
+    private final Consumer<T> action;
+    private final Mode mode;
+    private final long window;
+    private T latest;
+    private boolean pending = false;
+    private boolean windowOpen = false;
+    private boolean running = false;
+    private boolean cancelled = false;
+    private long lastEvent;
+    private ScheduledFuture<?> timer;
+    private CompletableFuture<Void> followUp;
+    private long received = 0;
+    private long executed = 0;
+
+    public AsyncLimiter(Consumer<T> action, Mode mode, long window) {
+        this.action = action;
+        this.mode = mode;
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+    }
+
+    /**
+     * Submit an event, only the latest value of a burst is delivered
+     * @param value
+     */
+    @Override
+    public void accept(T value) {
+        boolean dispatchNow = false;
+        synchronized (this) {
+            if (cancelled) return;
+            received++;
+            latest = value;
+            lastEvent = System.nanoTime();
+            switch (mode) {
+                case DEBOUNCE -> {
+                    pending = true;
+                    if (timer == null) arm(window);
+                }
+                case THROTTLE -> {
+                    if (windowOpen) pending = true;
+                    else {
+                        windowOpen = true;
+                        arm(window);
+                        dispatchNow = true;
+                    }
+                }
+                case COALESCE -> {
+                    if (running) pending = true;
+                    else {
+                        running = true;
+                        dispatchNow = true;
+                    }
+                }
+            }
+        }
+        if (dispatchNow) dispatch();
+    }
+
+    @Override
+    public void run() {
+        accept(null);
+    }
+
+    /**
+     * Execute the pending event now, if any
+     * @return AsyncableVoid completed when the execution ends
+     */
+    public Asyncable<Void> flush() {
+        synchronized (this) {
+            if (!pending || cancelled) return new Asyncable<>(CompletableFuture.completedFuture(null));
+            if (mode != Mode.COALESCE && timer != null) {
+                timer.cancel(false);
+                timer = null;
+                windowOpen = false;
+            }
+            if (mode == Mode.COALESCE && running) {
+                if (followUp == null) followUp = new CompletableFuture<>();
+                return new Asyncable<>(followUp);
+            }
+            if (mode == Mode.COALESCE) running = true;
+        }
+        return dispatch();
+    }
+
+    /**
+     * Drop the pending event and stop accepting new ones
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        pending = false;
+        latest = null;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    public synchronized boolean isPending() { return pending; }
+
+    public synchronized boolean isCancelled() { return cancelled; }
+
+    public synchronized long received() { return received; }
+
+    public synchronized long executed() { return executed; }
+
+    //Internal
+    private void arm(long delayNanos) {
+        timer = Async.schedule(this::expire, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void expire() {
+        synchronized (this) {
+            timer = null;
+            if (cancelled) return;
+            if (mode == Mode.DEBOUNCE) {
+                long quiet = System.nanoTime() - lastEvent;
+                if (quiet < window) {
+                    arm(window - quiet);
+                    return;
+                }
+                if (!pending) return;
+            } else {
+                if (!pending) {
+                    windowOpen = false;
+                    return;
+                }
+                arm(window);
+            }
+        }
+        dispatch();
+    }
+
+    private Asyncable<Void> dispatch() {
+        T value;
+        synchronized (this) {
+            value = latest;
+            latest = null;
+            pending = false;
+            executed++;
+        }
+        return Async.async(() -> {
+            try {
+                action.accept(value);
+            } finally {
+                if (mode == Mode.COALESCE) finished();
+            }
+        });
+    }
+
+    private void finished() {
+        CompletableFuture<Void> waiting;
+        synchronized (this) {
+            waiting = followUp;
+            followUp = null;
+            if (!pending || cancelled) {
+                running = false;
+                if (waiting != null) waiting.complete(null);
+                return;
+            }
+        }
+        Asyncable<Void> next = dispatch();
+        if (waiting != null) next.getDelegate().whenComplete((v, e) -> waiting.complete(null));
+    }
+}
@@ -0,0 +1,44 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Mutual exclusion between async tasks without blocking worker threads
+ */
+public final class AsyncMutex {
+
+    private final AsyncSemaphore permit = new AsyncSemaphore(1);
+
+    public Asyncable<Void> lock() {
+        return permit.acquire();
+    }
+
+    public boolean tryLock() {
+        return permit.tryAcquire();
+    }
+
+    /**
+     * @throws IllegalStateException if the mutex is not locked
+     */
+    public void unlock() {
+        if (!permit.release(1)) throw new IllegalStateException("AsyncMutex is not locked");
+    }
+
+    public boolean isLocked() {
+        return permit.availablePermits() == 0;
+    }
+
+    public int queueLength() {
+        return permit.queueLength();
+    }
+
+    /**
+     * Run a task holding the lock
+     * @param task
+     * @return AsyncableT
+     * @param <T>
+     */
+    public <T> Asyncable<T> withLock(Callable<T> task) {
+        return permit.withPermit(task);
+    }
+}
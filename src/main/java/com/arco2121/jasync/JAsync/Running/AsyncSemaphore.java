@@ -0,0 +1,107 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import com.arco2121.jasync.JAsync.Async;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Semaphore whose waiters are queued callbacks instead of blocked threads, permits are granted in FIFO order
+ */
+public final class AsyncSemaphore {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final AtomicInteger permits;
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    public AsyncSemaphore(int permits) {
+        if (permits < 0) throw new IllegalArgumentException("Permits cannot be negative");
+        this.permits = new AtomicInteger(permits);
+    }
+
+    /**
+     * Acquire a permit
+     * @return AsyncableVoid completed when the permit is granted, cancelling it gives up the place in the queue
+     */
+    public Asyncable<Void> acquire() {
+        if (tryAcquire()) return new Asyncable<>(GRANTED);
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        //A cancelled waiter leaves the queue at once, otherwise tryAcquire would fail until the next drain
+        waiter.whenComplete((ignored, error) -> {
+            if (waiter.isCancelled() && waiters.remove(waiter)) drain();
+        });
+        drain();
+        return new Asyncable<>(waiter);
+    }
+
+    /**
+     * Acquire a permit only if it is available now and nobody is waiting
+     * @return boolean
+     */
+    public boolean tryAcquire() {
+        return waiters.isEmpty() && take();
+    }
+
+    public void release() {
+        permits.incrementAndGet();
+        drain();
+    }
+
+    /**
+     * Release a permit only while fewer than limit are free
+     * @param limit
+     * @return boolean false if limit permits were already free
+     */
+    boolean release(int limit) {
+        while (true) {
+            int current = permits.get();
+            if (current >= limit) return false;
+            if (permits.compareAndSet(current, current + 1)) break;
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * Run a task holding a permit, the permit is released when the task ends
+     * @param task
+     * @return AsyncableT
+     * @param <T>
+     */
+    public <T> Asyncable<T> withPermit(Callable<T> task) {
+        CompletableFuture<T> result = acquire().getDelegate()
+                .thenCompose(granted -> Async.async(task).getDelegate())
+                .whenComplete((value, error) -> release());
+        return new Asyncable<>(result);
+    }
+
+    public int availablePermits() {
+        return permits.get();
+    }
+
+    public int queueLength() {
+        return waiters.size();
+    }
+
+    private boolean take() {
+        while (true) {
+            int current = permits.get();
+            if (current <= 0) return false;
+            if (permits.compareAndSet(current, current - 1)) return true;
+        }
+    }
+
+    //Hand the free permits to the head of the queue, cancelled waiters give their permit back
+    private void drain() {
+        while (!waiters.isEmpty()) {
+            if (!take()) return;
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (waiter == null || !waiter.complete(null)) permits.incrementAndGet();
+        }
+    }
+}
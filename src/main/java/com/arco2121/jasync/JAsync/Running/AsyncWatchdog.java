@@ -0,0 +1,294 @@
+package com.arco2121.jasync.JAsync.Running;
+
+import com.arco2121.jasync.JAsync.Async;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Opt-in tracker of in-flight tasks and blocked awaits, flags the ones older than a threshold
+ */
+public final class AsyncWatchdog {
+
+    public enum Kind {
+        TASK, AWAIT
+    }
+
+    /**
+     * A tracked task or blocked await
+     */
+    public static final class Entry {
+
+        public final long id;
+        public final Kind kind;
+        public final long parentId;
+        public final String thread;
+        public final StackTraceElement[] stack;
+        private final long submittedAt;
+        private volatile long startedAt;
+        private volatile String runner;
+        private volatile long waitingOn;
+        private volatile boolean flagged;
+
+        private Entry(long id, Kind kind, long parentId, StackTraceElement[] stack) {
+            this.id = id;
+            this.kind = kind;
+            this.parentId = parentId;
+            this.thread = Thread.currentThread().getName();
+            this.stack = stack;
+            this.submittedAt = System.nanoTime();
+            this.startedAt = kind == Kind.AWAIT ? submittedAt : 0;
+            this.runner = kind == Kind.AWAIT ? thread : null;
+        }
+
+        public long ageMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submittedAt);
+        }
+
+        public boolean isRunning() {
+            return startedAt != 0;
+        }
+
+        public String runner() { return runner; }
+
+        public long waitingOn() { return waitingOn; }
+
+        public boolean isFlagged() { return flagged; }
+
+        @Override
+        public String toString() {
+            String state = kind == Kind.AWAIT ? "BLOCKED" : isRunning() ? "RUNNING" : "QUEUED";
+            StringBuilder sb = new StringBuilder()
+                    .append(kind == Kind.AWAIT ? "await#" : "task#").append(id)
+                    .append(' ').append(state).append(' ').append(ageMillis()).append("ms")
+                    .append(" submitted by ").append(thread);
+            if (runner != null && kind == Kind.TASK) sb.append(" running on ").append(runner);
+            if (waitingOn != 0) sb.append(" -> task#").append(waitingOn);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Counters exposed by the watchdog
+     */
+    public record Metrics(long submitted, long completed, long inFlight, long blockedAwaits, long flagged, long timeouts, long callbackFailures, long oldestMillis) {}
+
+    private static volatile AsyncWatchdog ACTIVE;
+    private static final ThreadLocal<Entry> CURRENT = new ThreadLocal<>();
+    //The await the thread is blocked in, a timeout is reported on it
+    private static final ThreadLocal<Entry> AWAITING = new ThreadLocal<>();
+    //Set while the watchdog submits its own callbacks, which are not tracked
+    private static final ThreadLocal<Boolean> UNTRACKED = new ThreadLocal<>();
+    private static final AtomicLong IDS = new AtomicLong(0);
+
+    private final long threshold;
+    private final int sampleEvery;
+    private final Consumer<Entry> onSlow;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<CompletableFuture<?>, Entry> byFuture = new ConcurrentHashMap<>();
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final AtomicLong completed = new AtomicLong(0);
+    private final AtomicLong flagged = new AtomicLong(0);
+    private final AtomicLong timeouts = new AtomicLong(0);
+    private final AtomicLong callbackFailures = new AtomicLong(0);
+    private volatile boolean active = true;
+
+    private AsyncWatchdog(long threshold, int sampleEvery, Consumer<Entry> onSlow) {
+        this.threshold = threshold;
+        this.sampleEvery = Math.max(0, sampleEvery);
+        this.onSlow = onSlow;
+    }
+
+    /**
+     * Enable the watchdog, replacing the current one if any
+     * @param thresholdMs age after which a task or await is flagged
+     * @param sampleEvery capture the submitting stack once every n submits, 0 to never capture
+     * @param onSlow callback for flagged entries, run on the backend; its failures are counted in the metrics
+     * @return AsyncWatchdog
+     */
+    public static synchronized AsyncWatchdog enable(long thresholdMs, int sampleEvery, Consumer<Entry> onSlow) {
+        disable();
+        AsyncWatchdog watchdog = new AsyncWatchdog(thresholdMs, sampleEvery, onSlow);
+        ACTIVE = watchdog;
+        watchdog.schedule();
+        return watchdog;
+    }
+    public static AsyncWatchdog enable(long thresholdMs, Consumer<Entry> onSlow) {
+        return enable(thresholdMs, 64, onSlow);
+    }
+
+    public static synchronized void disable() {
+        AsyncWatchdog current = ACTIVE;
+        if (current == null) return;
+        current.active = false;
+        ACTIVE = null;
+    }
+
+    /**
+     * The enabled watchdog
+     * @return AsyncWatchdog, null
+     */
+    public static AsyncWatchdog current() {
+        return ACTIVE;
+    }
+
+    //Hooks
+    public <T> Asyncable<T> track(Callable<T> task, Function<Callable<T>, Asyncable<T>> submit) {
+        if (UNTRACKED.get() != null) return submit.apply(task);
+        Entry entry = register(Kind.TASK, null);
+        submitted.incrementAndGet();
+        Asyncable<T> result = submit.apply(() -> {
+            entry.runner = Thread.currentThread().getName();
+            entry.startedAt = System.nanoTime();
+            Entry previous = CURRENT.get();
+            CURRENT.set(entry);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) CURRENT.remove();
+                else CURRENT.set(previous);
+            }
+        });
+        CompletableFuture<T> future = result.getDelegate();
+        byFuture.put(future, entry);
+        future.whenComplete((value, error) -> {
+            byFuture.remove(future);
+            entries.remove(entry.id);
+            completed.incrementAndGet();
+        });
+        return result;
+    }
+
+    public Entry awaitStarted(Object task) {
+        Entry entry = register(Kind.AWAIT, task);
+        AWAITING.set(entry);
+        return entry;
+    }
+
+    public void awaitEnded(Entry entry) {
+        entries.remove(entry.id);
+        if (AWAITING.get() == entry) AWAITING.remove();
+    }
+
+    /**
+     * Called by the backends when a bounded await expires, on the thread that awaited: the timeout is counted and
+     * the await entry of that thread, if it was not flagged yet, is flagged now
+     * @param task
+     * @param timeout
+     * @return boolean true if the watchdog handled the report
+     */
+    public static boolean reportTimeout(Object task, long timeout) {
+        AsyncWatchdog watchdog = ACTIVE;
+        if (watchdog == null) return false;
+        watchdog.timeouts.incrementAndGet();
+        Entry entry = AWAITING.get();
+        if (entry != null && watchdog.entries.get(entry.id) == entry) watchdog.flag(entry);
+        return true;
+    }
+
+    private Entry register(Kind kind, Object awaited) {
+        Entry parent = CURRENT.get();
+        long id = IDS.incrementAndGet();
+        StackTraceElement[] stack = sampleEvery > 0 && id % sampleEvery == 0 ? new Throwable().getStackTrace() : null;
+        Entry entry = new Entry(id, kind, parent == null ? 0 : parent.id, stack);
+        if (awaited instanceof Asyncable<?> asyncable) {
+            Entry target = byFuture.get(asyncable.getDelegate());
+            if (target != null) entry.waitingOn = target.id;
+        }
+        entries.put(id, entry);
+        return entry;
+    }
+
+    //Scanning
+    private void schedule() {
+        long period = Math.max(10, threshold / 4);
+        Async.delayed(() -> {
+            if (!active) return;
+            scan();
+            schedule();
+        }, period);
+    }
+
+    private void scan() {
+        for (Entry entry : entries.values()) {
+            if (!entry.flagged && entry.ageMillis() >= threshold) flag(entry);
+        }
+    }
+
+    //The scan runs on the shared scheduler, the callback goes to the backend so a slow one delays no timer.
+    //It is submitted untracked, so it neither counts as a task nor gets flagged itself
+    private void flag(Entry entry) {
+        //The scan and a timeout report can race on the same await
+        synchronized (entry) {
+            if (entry.flagged) return;
+            entry.flagged = true;
+        }
+        flagged.incrementAndGet();
+        if (onSlow == null) return;
+        Asyncable<Void> callback;
+        UNTRACKED.set(Boolean.TRUE);
+        try {
+            callback = Async.async(() -> onSlow.accept(entry));
+        } finally {
+            UNTRACKED.remove();
+        }
+        callback.getDelegate().whenComplete((ignored, error) -> {
+            if (error != null) callbackFailures.incrementAndGet();
+        });
+    }
+
+    //Inspection
+    public Metrics metrics() {
+        long tasks = 0, awaits = 0, oldest = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.kind == Kind.TASK) tasks++;
+            else awaits++;
+            oldest = Math.max(oldest, entry.ageMillis());
+        }
+        return new Metrics(submitted.get(), completed.get(), tasks, awaits, flagged.get(), timeouts.get(), callbackFailures.get(), oldest);
+    }
+
+    public Collection<Entry> inFlight() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(e -> e.id));
+        return list;
+    }
+
+    /**
+     * Dump the current task graph, tasks are nested under the task that submitted them
+     * @return String
+     */
+    public String dump() {
+        Collection<Entry> snapshot = inFlight();
+        Map<Long, List<Entry>> children = new HashMap<>();
+        List<Entry> roots = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        for (Entry entry : snapshot) ids.add(entry.id);
+        for (Entry entry : snapshot) {
+            if (entry.parentId != 0 && ids.contains(entry.parentId))
+                children.computeIfAbsent(entry.parentId, k -> new ArrayList<>()).add(entry);
+            else roots.add(entry);
+        }
+        Metrics m = metrics();
+        StringBuilder sb = new StringBuilder("Async task graph: ")
+                .append(m.inFlight()).append(" tasks, ")
+                .append(m.blockedAwaits()).append(" awaits\n");
+        for (Entry root : roots) dump(sb, root, children, 1);
+        return sb.toString();
+    }
+
+    private void dump(StringBuilder sb, Entry entry, Map<Long, List<Entry>> children, int depth) {
+        String indent = "  ".repeat(depth);
+        sb.append(indent).append(entry).append(entry.flagged ? " [SLOW]" : "").append('\n');
+        if (entry.stack != null) {
+            for (StackTraceElement frame : entry.stack) sb.append(indent).append("    at ").append(frame).append('\n');
+        }
+        for (Entry child : children.getOrDefault(entry.id, List.of())) dump(sb, child, children, depth + 1);
+    }
+}
@@ -60,23 +60,24 @@ public record Asyncable<T>(CompletableFuture<T> delegate) implements Future<T>,
     }
 
     public <R> Asyncable<R> then(Function<? super T, ? extends R> mapper) {
-        return new Asyncable<>(delegate.thenApply(mapper));
+        return new Asyncable<>(delegate.thenApply(AsyncContext.wrapFunction(mapper)));
     }
     public Asyncable<Void> then(Runnable mapper) {
-        return new Asyncable<>(delegate.thenRun(mapper));
+        return new Asyncable<>(delegate.thenRun(AsyncContext.wrap(mapper)));
     }
 
     public Asyncable<Void> finish(Consumer<? super T> action) {
-        return new Asyncable<>(delegate.thenAccept(action));
+        return new Asyncable<>(delegate.thenAccept(AsyncContext.wrapConsumer(action)));
     }
 
     public Asyncable<T> error(Function<Throwable, ? extends T> errorHandler) {
-        return new Asyncable<>(delegate.exceptionally(errorHandler));
+        return new Asyncable<>(delegate.exceptionally(AsyncContext.wrapFunction(errorHandler)));
     }
     public Asyncable<Void> error(Consumer<Throwable> errorHandler) {
+        Consumer<Throwable> handler = AsyncContext.wrapConsumer(errorHandler);
         return new Asyncable<>(delegate.handle((result, ex) -> {
             if (ex != null) {
-                errorHandler.accept(ex);
+                handler.accept(ex);
             }
             return null;
         }));
@@ -2,6 +2,7 @@ package com.arco2121.jasync.Types.Async;
 
 import com.arco2121.jasync.Types.Exceptions.MissingAsyncException;
 import com.arco2121.jasync.Types.Interfaces.AsyncInterface;
+import com.arco2121.jasync.JAsync.Running.AsyncWatchdog;
 import com.arco2121.jasync.JAsync.Running.Asyncable;
 
 import java.util.Arrays;
@@ -60,7 +61,8 @@ public final class VirtualAsync implements AsyncInterface {
         } catch (ExecutionException e) {
             throw new RuntimeException(e.getCause());
         } catch (TimeoutException e) {
-            System.err.println("Timeout task: " + e.getMessage());
+            if (!AsyncWatchdog.reportTimeout(task, timeout))
+                System.err.println("Timeout task: " + e.getMessage());
             return null;
         }
     }
@@ -0,0 +1,86 @@
+package com.arco2121.jasync.Types.Interfaces;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Incremental aggregation: each item is folded into a small accumulator, the items themselves are not kept
+ * @param <T> item
+ * @param <A> accumulator
+ * @param <R> result
+ */
+public interface Aggregator<T, A, R> {
+
+    A create();
+    /**
+     * Fold an item into the accumulator
+     * @param accumulator
+     * @param item
+     * @return A the updated accumulator, usually the same instance
+     */
+    A add(A accumulator, T item);
+    R result(A accumulator);
+
+    static <T, A, R> Aggregator<T, A, R> of(Supplier<A> create, BiFunction<A, T, A> add, Function<A, R> result) {
+        return new Aggregator<>() {
+            public A create() { return create.get(); }
+            public A add(A accumulator, T item) { return add.apply(accumulator, item); }
+            public R result(A accumulator) { return result.apply(accumulator); }
+        };
+    }
+
+    static <T> Aggregator<T, long[], Long> count() {
+        return of(() -> new long[1], (acc, item) -> { acc[0]++; return acc; }, acc -> acc[0]);
+    }
+
+    static <T> Aggregator<T, double[], Double> sum(ToDoubleFunction<T> value) {
+        return of(() -> new double[1], (acc, item) -> { acc[0] += value.applyAsDouble(item); return acc; }, acc -> acc[0]);
+    }
+
+    /**
+     * @param value
+     * @return Aggregator the mean, NaN when no item was added
+     */
+    static <T> Aggregator<T, double[], Double> average(ToDoubleFunction<T> value) {
+        return of(() -> new double[2], (acc, item) -> {
+            acc[0] += value.applyAsDouble(item);
+            acc[1]++;
+            return acc;
+        }, acc -> acc[1] == 0 ? Double.NaN : acc[0] / acc[1]);
+    }
+
+    //The slot holds a T, it is an Object array only because generic arrays cannot be created
+    @SuppressWarnings("unchecked")
+    static <T> Aggregator<T, Object[], T> min(Comparator<T> comparator) {
+        return of(() -> new Object[1], (acc, item) -> {
+            if (acc[0] == null || comparator.compare(item, (T) acc[0]) < 0) acc[0] = item;
+            return acc;
+        }, acc -> (T) acc[0]);
+    }
+
+    static <T> Aggregator<T, Object[], T> max(Comparator<T> comparator) {
+        return min(comparator.reversed());
+    }
+
+    /**
+     * Aggregate the items of each key separately
+     * @param key
+     * @param downstream aggregator applied to the items of a key
+     * @return Aggregator the results by key
+     */
+    static <T, K, A, R> Aggregator<T, Map<K, A>, Map<K, R>> groupBy(Function<T, K> key, Aggregator<T, A, R> downstream) {
+        return of(HashMap::new, (groups, item) -> {
+            groups.compute(key.apply(item), (k, acc) -> downstream.add(acc == null ? downstream.create() : acc, item));
+            return groups;
+        }, groups -> {
+            Map<K, R> results = new HashMap<>(groups.size() * 4 / 3 + 1);
+            groups.forEach((k, acc) -> results.put(k, downstream.result(acc)));
+            return results;
+        });
+    }
+}
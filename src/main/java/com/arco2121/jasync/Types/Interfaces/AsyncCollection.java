@@ -4,6 +4,8 @@ import com.arco2121.jasync.JAsync.Running.Asyncable;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public interface AsyncCollection {
@@ -11,4 +13,22 @@ public interface AsyncCollection {
     Asyncable<?> awaitToArray(Function<Integer, ?> generator);
     Asyncable<List<?>> awaitToList();
     Iterator<?> asyncIterator();
+
+    /**
+     * Pull iterator, by default over the asyncIterator snapshot. An empty Optional ends the pull, so null elements
+     * are skipped rather than taken for the end
+     * @return AsyncIterator
+     */
+    default AsyncIterator<?> pull() {
+        Iterator<?> snapshot = asyncIterator();
+        return () -> {
+            synchronized (snapshot) {
+                while (snapshot.hasNext()) {
+                    Object item = snapshot.next();
+                    if (item != null) return new Asyncable<>(CompletableFuture.completedFuture(Optional.of(item)));
+                }
+                return new Asyncable<>(CompletableFuture.completedFuture(Optional.empty()));
+            }
+        };
+    }
 }
@@ -0,0 +1,66 @@
+package com.arco2121.jasync.Types.Interfaces;
+
+import com.arco2121.jasync.JAsync.Running.Asyncable;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Pull based iterator, waiting for an item costs a pending future instead of a blocked thread
+ * @param <T>
+ */
+@FunctionalInterface
+public interface AsyncIterator<T> {
+
+    /**
+     * Take the next item
+     * @return AsyncableOptionalT completed when an item is available, empty once the collection is over
+     */
+    Asyncable<Optional<T>> next();
+
+    /**
+     * Pull every remaining item, the action runs on the thread that completes each pull
+     * @param action
+     * @return AsyncableVoid completed once the collection is over, or with the error of the action
+     */
+    default Asyncable<Void> forEachRemaining(Consumer<? super T> action) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    //Loop while the pulls complete immediately, so a full queue does not grow the stack
+                    while (true) {
+                        CompletableFuture<Optional<T>> pulled = next().getDelegate();
+                        if (!pulled.isDone()) {
+                            pulled.whenComplete((item, error) -> {
+                                if (error != null) done.completeExceptionally(error);
+                                else if (accept(item)) run();
+                            });
+                            return;
+                        }
+                        if (!accept(pulled.join())) return;
+                    }
+                } catch (Throwable error) {
+                    done.completeExceptionally(error);
+                }
+            }
+
+            private boolean accept(Optional<T> item) {
+                if (item.isEmpty()) {
+                    done.complete(null);
+                    return false;
+                }
+                try {
+                    action.accept(item.get());
+                    return true;
+                } catch (Throwable error) {
+                    done.completeExceptionally(error);
+                    return false;
+                }
+            }
+        }.run();
+        return new Asyncable<>(done);
+    }
+}
@@ -0,0 +1,67 @@
+package com.arco2121.jasync.Types.Interfaces;
+
+import com.arco2121.jasync.Types.Exceptions.CannotDeconstructONException;
+import com.arco2121.jasync.Types.Interfaces.ObjectNotations.JSONable;
+import com.arco2121.jasync.Types.Interfaces.ObjectNotations.TOONable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts items to bytes and back, used by the queues that store their items outside the heap
+ * @param <T>
+ */
+public interface Codec<T> {
+
+    byte[] encode(T item);
+    T decode(byte[] bytes);
+
+    static Codec<String> utf8() {
+        return new Codec<>() {
+            public byte[] encode(String item) { return item.getBytes(StandardCharsets.UTF_8); }
+            public String decode(byte[] bytes) { return new String(bytes, StandardCharsets.UTF_8); }
+        };
+    }
+
+    static <T extends JSONable> Codec<T> json(Class<T> type) {
+        return new Codec<>() {
+            public byte[] encode(T item) { return item.toNotation().getBytes(StandardCharsets.UTF_8); }
+            public T decode(byte[] bytes) { return JSONable.fromNotation(new String(bytes, StandardCharsets.UTF_8), type); }
+        };
+    }
+
+    static <T extends TOONable> Codec<T> toon(Class<T> type) {
+        return new Codec<>() {
+            public byte[] encode(T item) { return item.toNotation().getBytes(StandardCharsets.UTF_8); }
+            public T decode(byte[] bytes) { return TOONable.fromNotation(new String(bytes, StandardCharsets.UTF_8), type); }
+        };
+    }
+
+    /**
+     * Java serialization, for any Serializable item
+     * @return Codec
+     */
+    static <T extends Serializable> Codec<T> serializable() {
+        return new Codec<>() {
+            public byte[] encode(T item) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return bytes.toByteArray();
+            }
+            @SuppressWarnings("unchecked")
+            public T decode(byte[] bytes) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (T) in.readObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new CannotDeconstructONException("Class not found: " + e.getMessage());
+                }
+            }
+        };
+    }
+}
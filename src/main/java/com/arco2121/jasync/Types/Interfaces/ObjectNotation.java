@@ -2,6 +2,7 @@ package com.arco2121.jasync.Types.Interfaces;
 
 import com.arco2121.jasync.Types.Exceptions.CannotConstructONException;
 import com.arco2121.jasync.Types.Exceptions.CannotDeconstructONException;
+import com.arco2121.jasync.Types.Interfaces.ObjectNotations.ClassNotation;
 
 import java.io.Externalizable;
 import java.io.IOException;
@@ -54,25 +55,17 @@ public interface ObjectNotation extends Externalizable {
 
         if (val instanceof Map) {
             if (Map.class.isAssignableFrom(toClass)) return (T) val;
+            ClassNotation notation = ClassNotation.of(toClass);
             T instance;
             try {
-                Constructor<T> ctor = toClass.getDeclaredConstructor();
-                ctor.setAccessible(true);
-                instance = ctor.newInstance();
+                instance = (T) notation.newInstance();
             } catch (NoSuchMethodException e) {
                 throw new Exception("No-args constructor missing for " + toClass.getSimpleName());
             }
             Map<String, Object> map = (Map<String, Object>) val;
-            Class<?> current = toClass;
-            while (current != null && current != Object.class) {
-                for (Field f : current.getDeclaredFields()) {
-                    if (Modifier.isStatic(f.getModifiers()) || Modifier.isTransient(f.getModifiers()) || f.isSynthetic()) continue;
-                    if (map.containsKey(f.getName())) {
-                        f.setAccessible(true);
-                        f.set(instance, convert(map.get(f.getName()), f.getType(), f.getGenericType()));
-                    }
-                }
-                current = current.getSuperclass();
+            for (ClassNotation.Property property : notation.properties()) {
+                if (map.containsKey(property.name()))
+                    property.set(instance, convert(map.get(property.name()), property.type(), property.genericType()));
             }
             return instance;
         }
@@ -161,19 +154,12 @@ public interface ObjectNotation extends Externalizable {
         return pos[0] < src.length() ? src.charAt(pos[0]) : 0;
     }
 
+    /**
+     * @param clazz
+     * @return ListField the non-static, non-transient fields, accessible, computed once per class
+     */
     static List<Field> getSerializableFields(Class<?> clazz) {
-        List<Field> fields = new ArrayList<>();
-        Class<?> current = clazz;
-        while (current != null && current != Object.class) {
-            for (Field f : current.getDeclaredFields()) {
-                int mod = f.getModifiers();
-                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()) continue;
-                f.setAccessible(true);
-                fields.add(f);
-            }
-            current = current.getSuperclass();
-        }
-        return fields;
+        return ClassNotation.of(clazz).fields();
     }
 
     static void skipWhitespace(String src, int[] pos) {
@@ -0,0 +1,143 @@
+package com.arco2121.jasync.Types.Interfaces.ObjectNotations;
+
+import com.arco2121.jasync.Types.Interfaces.ObjectNotation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the notations need to know about a class, computed once per class: the serializable fields in declaration
+ * order (subclass first) with their escaped keys and accessors, and the no-args constructor
+ */
+public final class ClassNotation {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ClassValue<ClassNotation> CACHE = new ClassValue<>() {
+        @Override
+        protected ClassNotation computeValue(Class<?> type) {
+            return new ClassNotation(type);
+        }
+    };
+
+    /**
+     * A serializable field
+     * @param field accessible
+     * @param name
+     * @param key the name escaped and quoted, as a JSON key followed by the colon
+     * @param type
+     * @param genericType
+     */
+    public record Property(Field field, String name, String key, Class<?> type, Type genericType, MethodHandle getter, MethodHandle setter) {
+
+        public Object get(Object target) {
+            try {
+                return getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public void set(Object target, Object value) throws IllegalAccessException {
+            //Final fields of records and hidden classes have no setter, reflection reports why
+            if (setter == null) {
+                field.set(target, value);
+                return;
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final List<Property> properties;
+    private final List<Field> fields;
+    private final MethodHandle constructor;
+
+    private ClassNotation(Class<?> type) {
+        List<Property> properties = new ArrayList<>();
+        Class<?> current = type;
+        while (current != null && current != Object.class) {
+            for (Field f : current.getDeclaredFields()) {
+                int mod = f.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()) continue;
+                f.setAccessible(true);
+                properties.add(new Property(f, f.getName(), "\"" + ObjectNotation.escapeString(f.getName()) + "\":",
+                        f.getType(), f.getGenericType(), getter(f), setter(f)));
+            }
+            current = current.getSuperclass();
+        }
+        this.properties = List.copyOf(properties);
+        this.fields = properties.stream().map(Property::field).toList();
+        this.constructor = constructor(type);
+    }
+
+    public static ClassNotation of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    public List<Property> properties() {
+        return properties;
+    }
+
+    /**
+     * @return ListField the serializable fields, already accessible
+     */
+    public List<Field> fields() {
+        return fields;
+    }
+
+    /**
+     * @return Object new instance from the no-args constructor
+     * @throws NoSuchMethodException if the class has none
+     */
+    public Object newInstance() throws Exception {
+        if (constructor == null) throw new NoSuchMethodException("No-args constructor missing");
+        try {
+            return constructor.invokeExact();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle getter(Field f) {
+        try {
+            return LOOKUP.unreflectGetter(f).asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Field access error: " + f.getName());
+        }
+    }
+
+    private static MethodHandle setter(Field f) {
+        try {
+            return LOOKUP.unreflectSetter(f).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers()) || type.isInterface()) return null;
+        try {
+            Constructor<?> ctor = type.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
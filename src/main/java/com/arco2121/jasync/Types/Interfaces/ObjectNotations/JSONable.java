@@ -111,22 +111,10 @@ public interface JSONable extends ObjectNotation {
     private static String constructFromFieldsInternal(Object obj, Set<Object> visited) throws CannotConstructONException {
         StringBuilder sb = new StringBuilder("{");
         boolean first = true;
-        Class<?> clazz = obj.getClass();
-        while (clazz != null && clazz != Object.class) {
-            for (Field f : clazz.getDeclaredFields()) {
-                int mod = f.getModifiers();
-                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()) continue;
-                if (!first) sb.append(",");
-                f.setAccessible(true);
-                try {
-                    sb.append("\"").append(ObjectNotation.escapeString(f.getName())).append("\":")
-                            .append(constructJSONInternal(f.get(obj), visited));
-                    first = false;
-                } catch (IllegalAccessException e) {
-                    throw new CannotConstructONException("Field access error: " + f.getName());
-                }
-            }
-            clazz = clazz.getSuperclass();
+        for (ClassNotation.Property property : ClassNotation.of(obj.getClass()).properties()) {
+            if (!first) sb.append(",");
+            sb.append(property.key()).append(constructJSONInternal(property.get(obj), visited));
+            first = false;
         }
         return sb.append("}").toString();
     }
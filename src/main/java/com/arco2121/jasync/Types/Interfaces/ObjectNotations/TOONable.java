@@ -81,9 +81,9 @@ public interface TOONable extends ObjectNotation {
             Object first = col.iterator().next();
             if (first instanceof String || first instanceof Number || first instanceof Boolean) return col.toString();
 
-            List<Field> fields = ObjectNotation.getSerializableFields(first.getClass());
+            List<ClassNotation.Property> fields = ClassNotation.of(first.getClass()).properties();
             StringBuilder sb = new StringBuilder("[" + col.size() + "]{");
-            for (int i = 0; i < fields.size(); i++) sb.append(fields.get(i).getName()).append(i == fields.size()-1 ? "" : ",");
+            for (int i = 0; i < fields.size(); i++) sb.append(fields.get(i).name()).append(i == fields.size()-1 ? "" : ",");
             sb.append("}:");
             for (Object item : col) {
                 sb.append("\n").append("  ".repeat(indent + 1));
@@ -97,8 +97,8 @@ public interface TOONable extends ObjectNotation {
         if (!visited.add(obj)) throw new CannotConstructONException("Circular reference");
         StringBuilder sb = new StringBuilder();
         String tabs = "  ".repeat(indent);
-        for (Field f : ObjectNotation.getSerializableFields(obj.getClass())) {
-            sb.append("\n").append(tabs).append(f.getName()).append(": ").append(constructTOONInternal(f.get(obj), indent + 1, visited));
+        for (ClassNotation.Property property : ClassNotation.of(obj.getClass()).properties()) {
+            sb.append("\n").append(tabs).append(property.name()).append(": ").append(constructTOONInternal(property.get(obj), indent + 1, visited));
         }
         visited.remove(obj);
         return sb.toString();
@@ -0,0 +1,60 @@
+package com.arco2121.jasync.Types.Queues;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Ring queue for many producers and many consumers, every slot carries a sequence number telling
+ * whether it is ready to be written or read
+ * @param <E>
+ */
+public final class MpmcRingQueue<E> extends RingQueue<E> {
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    private final long[] sequences;
+
+    public MpmcRingQueue(int capacity) {
+        super(capacity);
+        this.sequences = new long[buffer.length];
+        for (int i = 0; i < sequences.length; i++) sequences[i] = i;
+        VarHandle.releaseFence();
+    }
+
+    @Override
+    protected boolean tryOffer(E item) {
+        while (true) {
+            long producer = (long) PRODUCER.getVolatile(this);
+            int index = (int) producer & mask;
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            if (sequence == producer) {
+                if (PRODUCER.compareAndSet(this, producer, producer + 1)) {
+                    SLOT.set(buffer, index, item);
+                    SEQUENCE.setRelease(sequences, index, producer + 1);
+                    return true;
+                }
+            } else if (sequence < producer) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E tryPoll() {
+        while (true) {
+            long consumer = (long) CONSUMER.getVolatile(this);
+            int index = (int) consumer & mask;
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            if (sequence == consumer + 1) {
+                if (CONSUMER.compareAndSet(this, consumer, consumer + 1)) {
+                    Object item = SLOT.get(buffer, index);
+                    SLOT.set(buffer, index, null);
+                    SEQUENCE.setRelease(sequences, index, consumer + buffer.length);
+                    return (E) item;
+                }
+            } else if (sequence < consumer + 1) {
+                return null;
+            }
+        }
+    }
+}
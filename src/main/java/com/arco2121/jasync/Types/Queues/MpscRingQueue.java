@@ -0,0 +1,39 @@
+package com.arco2121.jasync.Types.Queues;
+
+/**
+ * Ring queue for many producer threads and one consumer thread, producers claim a slot with a CAS
+ * @param <E>
+ */
+public final class MpscRingQueue<E> extends RingQueue<E> {
+
+    public MpscRingQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    protected boolean tryOffer(E item) {
+        long producer;
+        do {
+            producer = (long) PRODUCER.getVolatile(this);
+            if (producer - (long) CONSUMER.getAcquire(this) >= buffer.length) return false;
+        } while (!PRODUCER.compareAndSet(this, producer, producer + 1));
+        SLOT.setRelease(buffer, (int) producer & mask, item);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E tryPoll() {
+        long consumer = (long) CONSUMER.getOpaque(this);
+        int index = (int) consumer & mask;
+        Object item = SLOT.getAcquire(buffer, index);
+        if (item == null) {
+            if (consumer >= (long) PRODUCER.getVolatile(this)) return null;
+            //The slot is claimed but not written yet
+            while ((item = SLOT.getAcquire(buffer, index)) == null) Thread.onSpinWait();
+        }
+        SLOT.setRelease(buffer, index, null);
+        CONSUMER.setRelease(this, consumer + 1);
+        return (E) item;
+    }
+}
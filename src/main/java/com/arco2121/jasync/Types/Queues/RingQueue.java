@@ -0,0 +1,234 @@
+package com.arco2121.jasync.Types.Queues;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//Padding keeps the producer and consumer counters on different cache lines
+abstract class RingPad0<E> extends AbstractQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+abstract class RingProducerIndex<E> extends RingPad0<E> {
+    volatile long producerIndex;
+}
+
+abstract class RingPad1<E> extends RingProducerIndex<E> {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+    long p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+}
+
+abstract class RingConsumerIndex<E> extends RingPad1<E> {
+    volatile long consumerIndex;
+}
+
+abstract class RingPad2<E> extends RingConsumerIndex<E> {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+}
+
+/**
+ * Array backed bounded queue, the capacity is rounded up to a power of two.
+ * Blocking operations spin, then yield, then park until an item or a free slot is available
+ */
+public abstract class RingQueue<E> extends RingPad2<E> implements BlockingQueue<E> {
+
+    protected static final VarHandle PRODUCER;
+    protected static final VarHandle CONSUMER;
+    protected static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCER = lookup.findVarHandle(RingProducerIndex.class, "producerIndex", long.class);
+            CONSUMER = lookup.findVarHandle(RingConsumerIndex.class, "consumerIndex", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public static final int MAX_CAPACITY = 1 << 30;
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+    private static final int YIELDS = 16;
+    private static final long MAX_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    protected final Object[] buffer;
+    protected final int mask;
+    private final Queue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    protected RingQueue(int capacity) {
+        //The ring is allocated whole, an unbounded queue belongs in a linked one
+        if (capacity < 1 || capacity > MAX_CAPACITY) throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+    }
+
+    protected abstract boolean tryOffer(E item);
+    protected abstract E tryPoll();
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    //Non blocking operations
+    @Override
+    public boolean offer(E item) {
+        Objects.requireNonNull(item);
+        if (!tryOffer(item)) return false;
+        wake(waitingConsumers);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E item = tryPoll();
+        if (item != null) wake(waitingProducers);
+        return item;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long consumer = (long) CONSUMER.getVolatile(this);
+        return (E) SLOT.getAcquire(buffer, (int) consumer & mask);
+    }
+
+    @Override
+    public int size() {
+        while (true) {
+            long consumer = (long) CONSUMER.getVolatile(this);
+            long producer = (long) PRODUCER.getVolatile(this);
+            if (consumer == (long) CONSUMER.getVolatile(this)) {
+                return (int) Math.max(0, Math.min(buffer.length, producer - consumer));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return buffer.length - size();
+    }
+
+    /**
+     * Weakly consistent snapshot of the queued items
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long consumer = (long) CONSUMER.getVolatile(this);
+        long producer = (long) PRODUCER.getVolatile(this);
+        for (long i = consumer; i < producer && i < consumer + buffer.length; i++) {
+            Object item = SLOT.getAcquire(buffer, (int) i & mask);
+            if (item != null) snapshot.add((E) item);
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        if (target == this) throw new IllegalArgumentException("Cannot drain into itself");
+        int drained = 0;
+        E item;
+        while (drained < maxElements && (item = tryPoll()) != null) {
+            target.add(item);
+            drained++;
+        }
+        if (drained > 0) wake(waitingProducers);
+        return drained;
+    }
+
+    //Blocking operations
+    @Override
+    public void put(E item) throws InterruptedException {
+        offer(item, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean offer(E item, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(item);
+        long deadline = deadline(timeout, unit);
+        int round = 0;
+        while (!tryOffer(item)) {
+            if (!await(waitingProducers, round++, deadline, () -> size() < buffer.length)) return false;
+        }
+        wake(waitingConsumers);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = deadline(timeout, unit);
+        int round = 0;
+        E item;
+        while ((item = tryPoll()) == null) {
+            if (!await(waitingConsumers, round++, deadline, () -> size() > 0)) return null;
+        }
+        wake(waitingProducers);
+        return item;
+    }
+
+    private static long deadline(long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        return nanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : System.nanoTime() + nanos;
+    }
+
+    @FunctionalInterface
+    private interface Ready {
+        boolean check();
+    }
+
+    /**
+     * One round of the wait strategy
+     * @return false once the deadline has passed
+     */
+    private boolean await(Queue<Thread> waiters, int round, long deadline, Ready ready) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) return false;
+        if (round < SPINS) {
+            Thread.onSpinWait();
+            return true;
+        }
+        if (round < SPINS + YIELDS) {
+            Thread.yield();
+            return true;
+        }
+        Thread current = Thread.currentThread();
+        waiters.add(current);
+        try {
+            if (ready.check()) return true;
+            long park = deadline == Long.MAX_VALUE ? MAX_PARK : Math.min(MAX_PARK, deadline - System.nanoTime());
+            if (park > 0) LockSupport.parkNanos(this, park);
+        } finally {
+            waiters.remove(current);
+        }
+        return true;
+    }
+
+    private static void wake(Queue<Thread> waiters) {
+        if (waiters.isEmpty()) return;
+        Thread waiting = waiters.poll();
+        if (waiting != null) LockSupport.unpark(waiting);
+    }
+}
@@ -0,0 +1,460 @@
+package com.arco2121.jasync.Types.Queues;
+
+import com.arco2121.jasync.Types.Interfaces.Codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Unbounded queue keeping up to headCapacity items in heap, once the head is full the items are encoded and
+ * appended to memory mapped segment files, then read back in order. Consumed segments are reused for the next
+ * writes, and the segments found in the directory at start are queued again.
+ * Segment layout: int read offset, int unused, then records made of an int (length + 1, -1 for the marker, -2 for
+ * a marker left by a previous queue, 0 for the end) followed by the payload
+ */
+public final class SpillQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, Closeable {
+
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+    private static final int HEADER = 8;
+    private static final int MARKER = -1;
+    private static final int SKIP = -2;
+    private static final int FREE_SEGMENTS = 2;
+    private static final String SUFFIX = ".segment";
+
+    private static final class Segment {
+        long sequence;
+        Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int readOffset = HEADER;
+        int writeOffset = HEADER;
+
+        Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<E> head = new ArrayDeque<>();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ArrayDeque<Segment> free = new ArrayDeque<>();
+    private final int headCapacity;
+    private final Path directory;
+    private final Codec<E> codec;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final E marker;
+    private long nextSequence = 0;
+    private int spilled = 0;
+    //Markers queued, in total and in the segments, so that looking for the marker decodes nothing
+    private int markers = 0;
+    private int spilledMarkers = 0;
+    private boolean released = false;
+    //Written holding the lock, read without it by offer to encode outside the lock
+    private volatile boolean spilling = false;
+
+    public SpillQueue(int headCapacity, Path directory, Codec<E> codec) {
+        this(headCapacity, directory, codec, DEFAULT_SEGMENT_BYTES, false, null);
+    }
+    /**
+     * @param headCapacity items kept in heap before spilling, ignored with fsync
+     * @param directory where the segments are written
+     * @param codec
+     * @param segmentBytes size of a segment file, larger items get a segment of their own
+     * @param fsync force every write and read position to disk, every item then goes through the segments so that
+     *              a restart finds all the items not consumed yet
+     * @param marker an item written without the codec, used by AsyncQueue for its close sentinel, may be null
+     */
+    public SpillQueue(int headCapacity, Path directory, Codec<E> codec, int segmentBytes, boolean fsync, E marker) {
+        if (headCapacity < 0) throw new IllegalArgumentException("Head capacity cannot be negative");
+        if (segmentBytes <= HEADER + 8) throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        this.headCapacity = fsync ? 0 : headCapacity;
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.marker = marker;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Queue
+    @Override
+    public boolean offer(E item) {
+        Objects.requireNonNull(item);
+        //Encoded before locking when the item is likely going to disk, the lock then only covers the copy
+        byte[] encoded = spilling ? encode(item) : null;
+        lock.lock();
+        try {
+            if (item == marker) markers++;
+            if (released || (spilled == 0 && head.size() < headCapacity)) head.add(item);
+            else append(encoded != null ? encoded : encode(item));
+            updateSpilling();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        Object read;
+        lock.lock();
+        try {
+            read = next();
+        } finally {
+            lock.unlock();
+        }
+        return decode(read);
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            if (!head.isEmpty()) return head.peek();
+            if (spilled == 0) return null;
+            Segment first = segments.peekFirst();
+            skip(first);
+            return decode(read(first, first.readOffset));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return head.size() + spilled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Items currently written to the segments
+     * @return int
+     */
+    public int spilled() {
+        lock.lock();
+        try {
+            return spilled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The marker is found through its count, any other item through the decoded snapshot
+     * @param item
+     * @return boolean
+     */
+    @Override
+    public boolean contains(Object item) {
+        if (item == null || item != marker) return super.contains(item);
+        lock.lock();
+        try {
+            return markers > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Snapshot of the queue, the spilled items are decoded
+     * @return Iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            snapshot.addAll(head);
+            for (Segment segment : segments) {
+                int at = segment.readOffset;
+                while (at < segment.writeOffset) {
+                    if (segment.buffer.getInt(at) != SKIP) snapshot.add(decode(read(segment, at)));
+                    at += recordSize(segment, at);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        List<Object> taken = new ArrayList<>();
+        lock.lock();
+        try {
+            Object read;
+            while (taken.size() < maxElements && (read = next()) != null) taken.add(read);
+        } finally {
+            lock.unlock();
+        }
+        for (Object read : taken) target.add(decode(read));
+        return taken.size();
+    }
+
+    //Blocking
+    @Override
+    public void put(E item) {
+        offer(item);
+    }
+
+    @Override
+    public boolean offer(E item, long timeout, TimeUnit unit) {
+        return offer(item);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        Object read;
+        lock.lockInterruptibly();
+        try {
+            while ((read = next()) == null) notEmpty.await();
+        } finally {
+            lock.unlock();
+        }
+        return decode(read);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        Object read;
+        lock.lockInterruptibly();
+        try {
+            while ((read = next()) == null) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return decode(read);
+    }
+
+    /**
+     * Release the files, the spilled items not consumed yet stay on disk for the next SpillQueue on the same
+     * directory. The queue keeps working in heap only
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (released) return;
+            released = true;
+            spilled = 0;
+            markers -= spilledMarkers;
+            spilledMarkers = 0;
+            updateSpilling();
+            for (Segment segment : segments) segment.channel.close();
+            for (Segment segment : free) segment.channel.close();
+            segments.clear();
+            free.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Internal, called holding the lock
+    /**
+     * @return Object the next item, its bytes if it was spilled, null if the queue is empty
+     */
+    private Object next() {
+        if (!head.isEmpty()) {
+            Object read = head.poll();
+            if (read == marker) markers--;
+            updateSpilling();
+            return read;
+        }
+        if (spilled == 0) return null;
+        Segment first = segments.peekFirst();
+        skip(first);
+        Object read = read(first, first.readOffset);
+        first.readOffset += recordSize(first, first.readOffset);
+        skip(first);
+        spilled--;
+        if (read == marker) {
+            markers--;
+            spilledMarkers--;
+        }
+        updateSpilling();
+        if (first.readOffset == first.writeOffset) {
+            segments.pollFirst();
+            recycle(first);
+        } else {
+            first.buffer.putInt(0, first.readOffset);
+            if (fsync) first.buffer.force(0, Integer.BYTES);
+        }
+        return read;
+    }
+
+    //Move the read offset past the markers of a previous queue
+    private static void skip(Segment segment) {
+        while (segment.readOffset < segment.writeOffset && segment.buffer.getInt(segment.readOffset) == SKIP) segment.readOffset += Integer.BYTES;
+    }
+
+    private void updateSpilling() {
+        spilling = !released && (spilled > 0 || head.size() >= headCapacity);
+    }
+
+    private static int recordSize(Segment segment, int at) {
+        int length = segment.buffer.getInt(at);
+        return Integer.BYTES + (length < 0 ? 0 : length - 1);
+    }
+
+    private Object read(Segment segment, int at) {
+        int length = segment.buffer.getInt(at);
+        if (length == MARKER) return marker;
+        byte[] bytes = new byte[length - 1];
+        segment.buffer.get(at + Integer.BYTES, bytes);
+        return bytes;
+    }
+
+    //Anything but the bytes of a spilled record is an item queued as it is
+    @SuppressWarnings("unchecked")
+    private E decode(Object read) {
+        return read instanceof byte[] bytes ? codec.decode(bytes) : (E) read;
+    }
+
+    private byte[] encode(E item) {
+        return item == marker ? null : codec.encode(item);
+    }
+
+    //A null payload is the marker
+    private void append(byte[] payload) {
+        int size = Integer.BYTES + (payload == null ? 0 : payload.length);
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writeOffset + size + Integer.BYTES > tail.capacity()) {
+            tail = open(HEADER + size + Integer.BYTES);
+            segments.addLast(tail);
+        }
+        MappedByteBuffer buffer = tail.buffer;
+        int at = tail.writeOffset;
+        //End mark first and length last, a reader never sees a length before its payload
+        buffer.putInt(at + size, 0);
+        if (payload != null) buffer.put(at + Integer.BYTES, payload);
+        buffer.putInt(at, payload == null ? MARKER : payload.length + 1);
+        if (fsync) buffer.force(at, size + Integer.BYTES);
+        tail.writeOffset = at + size;
+        spilled++;
+        if (payload == null) spilledMarkers++;
+    }
+
+    private Segment open(int minBytes) {
+        long sequence = nextSequence++;
+        Path path = directory.resolve(String.format("%019d%s", sequence, SUFFIX));
+        try {
+            Segment segment = free.peekFirst();
+            if (segment != null && segment.capacity() >= minBytes) {
+                free.pollFirst();
+                Files.move(segment.path, path);
+                segment.sequence = sequence;
+                segment.path = path;
+            } else {
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                segment = new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, minBytes)));
+            }
+            reset(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Consumed segments are kept for the next writes, beyond FREE_SEGMENTS they are deleted
+    private void recycle(Segment segment) {
+        reset(segment);
+        if (free.size() < FREE_SEGMENTS) {
+            free.addLast(segment);
+            return;
+        }
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void reset(Segment segment) {
+        segment.readOffset = HEADER;
+        segment.writeOffset = HEADER;
+        segment.buffer.putInt(HEADER, 0);
+        segment.buffer.putInt(0, HEADER);
+        if (fsync) segment.buffer.force(0, HEADER + Integer.BYTES);
+    }
+
+    private void recover() throws IOException {
+        List<Path> found;
+        try (Stream<Path> files = Files.list(directory)) {
+            found = files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path path : found) {
+            String name = path.getFileName().toString();
+            long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            MappedByteBuffer buffer = segment.buffer;
+            int at = Math.max(HEADER, buffer.getInt(0));
+            int count = 0;
+            while (at + Integer.BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(at);
+                if (length == 0 || length < SKIP || at + recordSize(segment, at) > buffer.capacity()) break;
+                //The marker closed the previous queue, not this one
+                if (length == MARKER) buffer.putInt(at, SKIP);
+                else if (length != SKIP) count++;
+                at += recordSize(segment, at);
+            }
+            if (count == 0) {
+                recycle(segment);
+                continue;
+            }
+            segment.readOffset = Math.max(HEADER, buffer.getInt(0));
+            segment.writeOffset = at;
+            segments.addLast(segment);
+            spilled += count;
+        }
+        updateSpilling();
+    }
+}
@@ -0,0 +1,33 @@
+package com.arco2121.jasync.Types.Queues;
+
+/**
+ * Ring queue for one producer thread and one consumer thread, no atomic instruction on either side
+ * @param <E>
+ */
+public final class SpscRingQueue<E> extends RingQueue<E> {
+
+    public SpscRingQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    protected boolean tryOffer(E item) {
+        long producer = (long) PRODUCER.getOpaque(this);
+        if (producer - (long) CONSUMER.getAcquire(this) >= buffer.length) return false;
+        SLOT.setRelease(buffer, (int) producer & mask, item);
+        PRODUCER.setRelease(this, producer + 1);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E tryPoll() {
+        long consumer = (long) CONSUMER.getOpaque(this);
+        if (consumer >= (long) PRODUCER.getAcquire(this)) return null;
+        int index = (int) consumer & mask;
+        E item = (E) SLOT.getAcquire(buffer, index);
+        SLOT.setRelease(buffer, index, null);
+        CONSUMER.setRelease(this, consumer + 1);
+        return item;
+    }
+}
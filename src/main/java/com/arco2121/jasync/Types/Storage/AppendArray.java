@@ -0,0 +1,206 @@
+package com.arco2121.jasync.Types.Storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free append-only array. Writers reserve an index with a single atomic increment and fill the slot of a
+ * chunk, chunks double in size so nothing is ever copied. The published size is the prefix whose slots are all
+ * written: it only grows, and reads below it need no synchronization
+ * @param <E>
+ */
+public final class AppendArray<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle PUBLISHED;
+    static {
+        try {
+            PUBLISHED = MethodHandles.lookup().findVarHandle(AppendArray.class, "published", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    //Chunk k holds FIRST << k slots, starting at index (FIRST << k) - FIRST: the chunk that would start at MAX_SIZE
+    //cannot be allocated, its length overflows an int
+    private static final int FIRST_SHIFT = 5;
+    private static final int FIRST = 1 << FIRST_SHIFT;
+    private static final int CHUNKS = 31 - FIRST_SHIFT;
+    private static final int MAX_SIZE = Integer.MAX_VALUE - FIRST + 1;
+    private static final Object NULL = new Object();
+
+    private final AtomicReferenceArray<Object[]> chunks = new AtomicReferenceArray<>(CHUNKS);
+    private final AtomicInteger reserved = new AtomicInteger();
+    private volatile int published = 0;
+
+    /**
+     * Append an item, null included
+     * @param item
+     * @return boolean always true
+     */
+    @Override
+    public boolean add(E item) {
+        int index = reserved.getAndIncrement();
+        if (index < 0 || index >= MAX_SIZE) {
+            reserved.decrementAndGet();
+            throw new IllegalStateException("AppendArray is full");
+        }
+        //Volatile on both sides: the writer of a slot and the writer of the gap before it cannot both miss each other
+        SLOT.setVolatile(chunk(index), offset(index), item == null ? NULL : item);
+        publish();
+        return true;
+    }
+
+    /**
+     * Append the items in order with a single reservation, so they stay contiguous under concurrent writers
+     * @param items
+     * @return boolean true if something was added
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> items) {
+        Object[] batch = items.toArray();
+        int n = batch.length;
+        if (n == 0) return false;
+        int index = reserved.getAndAdd(n);
+        if (index < 0 || index > MAX_SIZE - n) {
+            reserved.addAndGet(-n);
+            throw new IllegalStateException("AppendArray is full");
+        }
+        for (int i = 0; i < n; i++) {
+            Object item = batch[i];
+            SLOT.setVolatile(chunk(index + i), offset(index + i), item == null ? NULL : item);
+        }
+        publish();
+        return true;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= published) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + published);
+        return read(index);
+    }
+
+    /**
+     * @return int the published size
+     */
+    @Override
+    public int size() {
+        return published;
+    }
+
+    /**
+     * Read-only view of the items published now, it costs no copy because they never change
+     * @return AbstractListE
+     */
+    public AbstractList<E> snapshot() {
+        int size = published;
+        return new Snapshot(size);
+    }
+
+    /**
+     * Copy the published items
+     * @return Object array
+     */
+    @Override
+    public Object[] toArray() {
+        int size = published;
+        Object[] copy = new Object[size];
+        int copied = 0;
+        for (int k = 0; copied < size; k++) {
+            Object[] chunk = chunks.get(k);
+            int n = Math.min(chunk.length, size - copied);
+            System.arraycopy(chunk, 0, copy, copied, n);
+            copied += n;
+        }
+        for (int i = 0; i < size; i++) if (copy[i] == NULL) copy[i] = null;
+        return copy;
+    }
+
+    /**
+     * Copy the published items into a typed array, allocated only if the given one is too small
+     * @param target
+     * @return A array
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A> A[] toArray(A[] target) {
+        int size = published;
+        A[] copy = target.length >= size ? target : (A[]) Array.newInstance(target.getClass().getComponentType(), size);
+        int index = 0;
+        for (int k = 0; index < size; k++) {
+            Object[] chunk = chunks.get(k);
+            int n = Math.min(chunk.length, size - index);
+            for (int i = 0; i < n; i++, index++) {
+                Object item = chunk[i];
+                copy[index] = item == NULL ? null : (A) item;
+            }
+        }
+        if (copy.length > size) copy[size] = null;
+        return copy;
+    }
+
+    //Internal
+    @SuppressWarnings("unchecked")
+    private E read(int index) {
+        Object item = chunks.get(chunkIndex(index))[offset(index)];
+        return item == NULL ? null : (E) item;
+    }
+
+    /**
+     * Move the published size over every written slot, each writer pushes it as far as it can so the one that
+     * fills a gap publishes the writes after it too
+     */
+    private void publish() {
+        int current;
+        //Rejected reservations are handed back, until then they must not be read as written slots
+        while ((current = published) < Math.min(reserved.get(), MAX_SIZE)) {
+            Object[] chunk = chunks.get(chunkIndex(current));
+            if (chunk == null || SLOT.getVolatile(chunk, offset(current)) == null) return;
+            PUBLISHED.compareAndSet(this, current, current + 1);
+        }
+    }
+
+    private Object[] chunk(int index) {
+        int k = chunkIndex(index);
+        Object[] chunk = chunks.get(k);
+        if (chunk == null) {
+            chunks.compareAndSet(k, null, new Object[FIRST << k]);
+            chunk = chunks.get(k);
+        }
+        return chunk;
+    }
+
+    private static int chunkIndex(int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> FIRST_SHIFT) + 1);
+    }
+
+    private static int offset(int index) {
+        return index + FIRST - (FIRST << chunkIndex(index));
+    }
+
+    private final class Snapshot extends AbstractList<E> implements RandomAccess {
+
+        private final int size;
+
+        Snapshot(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public E get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            return read(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}